@@ -116,6 +116,20 @@ public class Primitive {
 		// return bits >>> shift | bits << Long.SIZE - shift;
 	}
 
+	/**
+	 * smallest power of two greater or equal to value, for mask based indexing
+	 *
+	 * @param value
+	 * @return
+	 */
+	public static int nextPowerOfTwo(final int value) {
+		if (value > 1 << 30)
+			throw new IllegalArgumentException("Value exceeds maximum power of two [" + value + "]");
+		if (value <= 1)
+			return 1;
+		return 1 << Integer.SIZE - Integer.numberOfLeadingZeros(value - 1);
+	}
+
 	public static int getColor(final int r, final int g, final int b, final int a) {
 		return (Math.min(255, Math.max(0, a)) & 0xFF) << 24 | //
 				(Math.min(255, Math.max(0, r)) & 0xFF) << 16 | //
@@ -0,0 +1,79 @@
+package net.xy.codebase.collection;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * serves the highest non empty level unless a level waited longer than the
+ * maximum wait time since it got active or was last served. The longest
+ * waiting of those gets promoted.
+ *
+ * @author Xyan
+ *
+ */
+public class AgingPriorityPolicy implements IPriorityPolicy {
+	/**
+	 * per level nano time of last serve or activation
+	 */
+	private final AtomicLongArray lastServed;
+	/**
+	 * maximum nanos a non empty level waits before promotion
+	 */
+	private final long maxWait;
+
+	/**
+	 * default
+	 *
+	 * @param levels
+	 * @param maxWait
+	 *            in nanos
+	 */
+	public AgingPriorityPolicy(final int levels, final long maxWait) {
+		lastServed = new AtomicLongArray(levels);
+		this.maxWait = maxWait;
+		final long now = System.nanoTime();
+		for (int i = 0; i < levels; i++)
+			lastServed.set(i, now);
+	}
+
+	@Override
+	public int select(final long levels) {
+		final int highest = Long.numberOfTrailingZeros(levels);
+		final long now = System.nanoTime();
+		int res = highest;
+		long oldest = now - maxWait;
+		for (long bits = levels & levels - 1; bits != 0; bits &= bits - 1) {
+			final int level = Long.numberOfTrailingZeros(bits);
+			final long served = lastServed.get(level);
+			if (served - oldest < 0) {
+				oldest = served;
+				res = level;
+			}
+		}
+		return res;
+	}
+
+	@Override
+	public int quantum(final int level) {
+		return 1;
+	}
+
+	@Override
+	public void served(final int level) {
+		lastServed.lazySet(level, System.nanoTime());
+	}
+
+	@Override
+	public void activated(final int level) {
+		lastServed.lazySet(level, System.nanoTime());
+	}
+
+	@Override
+	public int getLevels() {
+		return lastServed.length();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("AgingPriorityPolicy [maxWait=%s]", maxWait);
+	}
+}
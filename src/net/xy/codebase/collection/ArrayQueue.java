@@ -2,6 +2,7 @@ package net.xy.codebase.collection;
 
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
 
 import net.xy.codebase.exec.ThreadUtils;
 
@@ -65,6 +66,31 @@ public class ArrayQueue<E> implements Queue<E> {
 		return takeInner();
 	}
 
+	/**
+	 * adds as many elements as fit, the range gets claimed at once
+	 *
+	 * @param elems
+	 * @param off
+	 * @param len
+	 * @return amount of added elements
+	 */
+	@Override
+	public int addAll(final E[] elems, final int off, final int len) {
+		return addAllInner(elems, off, len);
+	}
+
+	/**
+	 * takes up to max elements, the range gets claimed at once
+	 *
+	 * @param consumer
+	 * @param max
+	 * @return amount of taken elements
+	 */
+	@Override
+	public int drainTo(final Consumer<E> consumer, final int max) {
+		return drainInner(consumer, max);
+	}
+
 	/**
 	 * inner emthod to select index and put object
 	 *
@@ -90,6 +116,41 @@ public class ArrayQueue<E> implements Queue<E> {
 		return true;
 	}
 
+	/**
+	 * inner method to reserve size and an index range for multiple elements
+	 * and to put them
+	 *
+	 * @param elems
+	 * @param off
+	 * @param len
+	 * @return amount of added elements
+	 */
+	protected int addAllInner(final E[] elems, final int off, final int len) {
+		if (len <= 0)
+			return 0;
+		int amount, putIdx;
+		for (;;) {
+			final int s = size.get();
+			amount = Math.min(len, elements.length() - s);
+			if (amount <= 0) {
+				if (SIZE_MAXED == checkLimit(s))
+					return 0;
+			} else if (size.compareAndSet(s, s + amount)) {
+				putIdx = putIndex.getAndAdd(amount);
+				break;
+			}
+			ThreadUtils.yield();
+		}
+
+		final int length = elements.length();
+		for (int i = 0; i < amount; i++) {
+			final int tarIdx = remainder(putIdx + i, length);
+			while (!elements.compareAndSet(tarIdx, null, elems[off + i]))
+				ThreadUtils.yield();
+		}
+		return amount;
+	}
+
 	/**
 	 * limit checking method can be overwritten for growth support
 	 *
@@ -130,6 +191,45 @@ public class ArrayQueue<E> implements Queue<E> {
 		}
 	}
 
+	/**
+	 * inner method to reserve an index range and to retrieve its objects
+	 *
+	 * @param consumer
+	 * @param max
+	 * @return amount of taken elements
+	 */
+	protected int drainInner(final Consumer<E> consumer, final int max) {
+		if (max <= 0)
+			return 0;
+		int amount, getIdx;
+		for (;;) {
+			final int s = size.get();
+			if (s == 0)
+				return 0;
+
+			amount = Math.min(s, max);
+			if (size.compareAndSet(s, s - amount)) {
+				getIdx = getIndex.getAndAdd(amount);
+				break;
+			}
+			ThreadUtils.yield();
+		}
+
+		final int length = elements.length();
+		for (int i = 0; i < amount; i++) {
+			final int tarIdx = remainder(getIdx + i, length);
+			for (;;) {
+				final E res = elements.get(tarIdx);
+				if (res != null && elements.compareAndSet(tarIdx, res, null)) {
+					consumer.accept(res);
+					break;
+				}
+				ThreadUtils.yield();
+			}
+		}
+		return amount;
+	}
+
 	/**
 	 * @return top element without removing
 	 */
@@ -1,5 +1,7 @@
 package net.xy.codebase.collection;
 
+import java.util.function.Consumer;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,6 +57,25 @@ public class ArrayQueueSet<E> extends ArrayQueue<E> {
 		return elem;
 	}
 
+	@Override
+	public synchronized int addAll(final E[] elems, final int off, final int len) {
+		for (int i = 0; i < len; i++)
+			if (!add(elems[off + i]))
+				return i;
+		return len;
+	}
+
+	@Override
+	public synchronized int drainTo(final Consumer<E> consumer, final int max) {
+		int count = 0;
+		E elem;
+		while (count < max && (elem = take()) != null) {
+			consumer.accept(elem);
+			count++;
+		}
+		return count;
+	}
+
 	@Override
 	public synchronized void clear() {
 		set.clear();
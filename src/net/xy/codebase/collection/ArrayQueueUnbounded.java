@@ -1,6 +1,7 @@
 package net.xy.codebase.collection;
 
 import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,9 +21,9 @@ public class ArrayQueueUnbounded<E> extends ArrayQueue<E> {
 	/**
 	 * monitor needed for resize
 	 */
-	protected ThreadMonitor add = new ThreadMonitor();
-	protected ThreadMonitor get = new ThreadMonitor();
-	protected ThreadMonitor gro = new ThreadMonitor();
+	protected ThreadMonitor add = new ThreadMonitor(ThreadMonitor.DEFAULT_SPINS);
+	protected ThreadMonitor get = new ThreadMonitor(ThreadMonitor.DEFAULT_SPINS);
+	protected ThreadMonitor gro = new ThreadMonitor(ThreadMonitor.DEFAULT_SPINS);
 	/**
 	 * maximum allowed element count
 	 */
@@ -70,6 +71,45 @@ public class ArrayQueueUnbounded<E> extends ArrayQueue<E> {
 		}
 	}
 
+	/**
+	 * adds as many elements as fit, grows in between as long as the maximum
+	 * is not reached
+	 *
+	 * @param elems
+	 * @param off
+	 * @param len
+	 * @return amount of added elements
+	 */
+	@Override
+	public int addAll(final E[] elems, final int off, final int len) {
+		try {
+			add.enter();
+			int res = 0, added;
+			while (res < len && (added = addAllInner(elems, off + res, len - res)) > 0)
+				res += added;
+			return res;
+		} finally {
+			add.leave();
+		}
+	}
+
+	/**
+	 * takes up to max elements
+	 *
+	 * @param consumer
+	 * @param max
+	 * @return amount of taken elements
+	 */
+	@Override
+	public int drainTo(final Consumer<E> consumer, final int max) {
+		try {
+			get.enter();
+			return drainInner(consumer, max);
+		} finally {
+			get.leave();
+		}
+	}
+
 	@Override
 	protected int checkLimit(final int size) {
 		if (super.checkLimit(size) == SIZE_MAXED)
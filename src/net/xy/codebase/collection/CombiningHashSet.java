@@ -0,0 +1,103 @@
+package net.xy.codebase.collection;
+
+import java.util.function.Consumer;
+
+import net.xy.codebase.collection.HashSet.Sweeper;
+import net.xy.codebase.concurrent.FlatCombiner;
+
+/**
+ * thread safe hash set by flat combining on an HashSet. Concurrent operations
+ * get applied by one thread in a row instead of handing over an lock per
+ * operation.
+ *
+ * @author Xyan
+ *
+ * @param <K>
+ */
+public class CombiningHashSet<K> {
+	/**
+	 * guards the backing set
+	 */
+	private final FlatCombiner<HashSet<K>> combiner;
+	/**
+	 * backing set, only touched by the combiner
+	 */
+	private final HashSet<K> set;
+
+	/**
+	 * default
+	 *
+	 * @param clazz
+	 */
+	public CombiningHashSet(final Class<K> clazz) {
+		this(new HashSet<K>(clazz));
+	}
+
+	/**
+	 * @param set
+	 *            must not be used besides this set
+	 */
+	public CombiningHashSet(final HashSet<K> set) {
+		this.set = set;
+		combiner = new FlatCombiner<HashSet<K>>(set);
+	}
+
+	public int size() {
+		return combiner.apply(HashSet::size);
+	}
+
+	public boolean isEmpty() {
+		return combiner.apply(HashSet::isEmpty);
+	}
+
+	public K contains(final K key) {
+		return combiner.apply(s -> s.contains(key));
+	}
+
+	public boolean put(final K key) {
+		return combiner.apply(s -> s.put(key));
+	}
+
+	public boolean remove(final K key) {
+		return combiner.apply(s -> s.remove(key));
+	}
+
+	public void clear() {
+		combiner.apply(s -> {
+			s.clear();
+			return null;
+		});
+	}
+
+	/**
+	 * the consumer gets called by the calling thread on an snapshot
+	 *
+	 * @param consumer
+	 */
+	public void forEach(final Consumer<K> consumer) {
+		final Array<K> snapshot = combiner.apply(s -> {
+			final Array<K> res = new Array<K>(Object.class, Math.max(s.size(), 1));
+			s.forEach(res::add);
+			return res;
+		});
+		for (int i = 0; i < snapshot.size(); i++)
+			consumer.accept(snapshot.get(i));
+	}
+
+	/**
+	 * the sweeper gets called by the combining thread and must not block
+	 *
+	 * @param swp
+	 */
+	public void sweep(final Sweeper<K> swp) {
+		combiner.apply(s -> {
+			s.sweep(swp);
+			return null;
+		});
+	}
+
+	@Override
+	public String toString() {
+		return String.format("CombiningHashSet [size=%s]", size());
+	}
+}
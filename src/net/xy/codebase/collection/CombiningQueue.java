@@ -0,0 +1,94 @@
+package net.xy.codebase.collection;
+
+import java.util.function.Consumer;
+
+import net.xy.codebase.concurrent.FlatCombiner;
+
+/**
+ * thread safe queue by flat combining on an non thread safe one. Concurrent
+ * operations get applied by one thread in a row instead of handing over an lock
+ * per operation.
+ *
+ * @author Xyan
+ *
+ * @param <E>
+ */
+public class CombiningQueue<E> implements Queue<E> {
+	/**
+	 * guards the backing queue
+	 */
+	private final FlatCombiner<Queue<E>> combiner;
+	/**
+	 * backing queue, only touched by the combiner
+	 */
+	private final Queue<E> queue;
+
+	/**
+	 * default
+	 *
+	 * @param queue
+	 *            must not be used besides this queue
+	 */
+	public CombiningQueue(final Queue<E> queue) {
+		this.queue = queue;
+		combiner = new FlatCombiner<Queue<E>>(queue);
+	}
+
+	@Override
+	public boolean add(final E elem) {
+		return combiner.apply(q -> q.add(elem));
+	}
+
+	@Override
+	public E take() {
+		return combiner.apply(Queue::take);
+	}
+
+	@Override
+	public int addAll(final E[] elems, final int off, final int len) {
+		return combiner.apply(q -> q.addAll(elems, off, len));
+	}
+
+	/**
+	 * the consumer gets called by the calling thread after taking
+	 */
+	@Override
+	public int drainTo(final Consumer<E> consumer, final int max) {
+		final Array<E> taken = combiner.apply(q -> {
+			final Array<E> res = new Array<E>(Object.class);
+			q.drainTo(res::add, max);
+			return res;
+		});
+		for (int i = 0; i < taken.size(); i++)
+			consumer.accept(taken.get(i));
+		return taken.size();
+	}
+
+	@Override
+	public E peek() {
+		return combiner.apply(Queue::peek);
+	}
+
+	@Override
+	public int size() {
+		return combiner.apply(Queue::size);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return combiner.apply(Queue::isEmpty);
+	}
+
+	@Override
+	public void clear() {
+		combiner.apply(q -> {
+			q.clear();
+			return null;
+		});
+	}
+
+	@Override
+	public String toString() {
+		return String.format("CombiningQueue [%s]", queue);
+	}
+}
@@ -0,0 +1,192 @@
+package net.xy.codebase.collection;
+
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.xy.codebase.Primitive;
+import net.xy.codebase.collection.HashSet.IHashStrategy;
+
+/**
+ * concurrent variant of the ArrayQueueSet. Elements get queued in an lock free
+ * ringbuffer, membership is kept in hash striped sets each guarded by its own
+ * monitor so producers of different elements don't serialize. Adding an
+ * element which is already queued is a no op. An equal element added while the
+ * queued one is taken but not yet processed counts as already queued.
+ *
+ * @author Xyan
+ *
+ * @param <E>
+ */
+public class ConcurrentArrayQueueSet<E> implements Queue<E> {
+	private static final Logger LOG = LoggerFactory.getLogger(ConcurrentArrayQueueSet.class);
+	/**
+	 * backing queue
+	 */
+	private final Queue<E> queue;
+	/**
+	 * membership index stripes
+	 */
+	private final HashSet<E>[] stripes;
+	/**
+	 * shift to get the stripe from the mixed hash
+	 */
+	private final int stripeShift;
+	/**
+	 * optional hash strategy, also used for stripe selection
+	 */
+	private final IHashStrategy<E, E> stra;
+
+	/**
+	 * default with stripes by available processors
+	 *
+	 * @param clazz
+	 * @param maxCount
+	 */
+	public ConcurrentArrayQueueSet(final Class<E> clazz, final int maxCount) {
+		this(clazz, maxCount, Runtime.getRuntime().availableProcessors() * 4, null);
+	}
+
+	/**
+	 * default with custom hash and equals strategy
+	 *
+	 * @param clazz
+	 * @param maxCount
+	 * @param stra
+	 */
+	public ConcurrentArrayQueueSet(final Class<E> clazz, final int maxCount, final IHashStrategy<E, E> stra) {
+		this(clazz, maxCount, Runtime.getRuntime().availableProcessors() * 4, stra);
+	}
+
+	/**
+	 * @param clazz
+	 * @param maxCount
+	 *            gets rounded up to the next power of two
+	 * @param stripes
+	 *            gets rounded up to the next power of two
+	 * @param stra
+	 *            null for default hashCode and equals
+	 */
+	public ConcurrentArrayQueueSet(final Class<E> clazz, final int maxCount, final int stripes,
+			final IHashStrategy<E, E> stra) {
+		queue = new MPMCArrayQueue<E>(clazz, maxCount);
+		final int count = Primitive.nextPowerOfTwo(Math.max(stripes, 1));
+		this.stripes = newStripes(count);
+		for (int i = 0; i < count; i++)
+			this.stripes[i] = stra != null ? new HashSet<E>(clazz, stra) : new HashSet<E>(clazz);
+		stripeShift = Integer.SIZE - Integer.numberOfTrailingZeros(count);
+		this.stra = stra;
+	}
+
+	/**
+	 * @param count
+	 * @return empty stripe array
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static <E> HashSet<E>[] newStripes(final int count) {
+		return new HashSet[count];
+	}
+
+	/**
+	 * @param elem
+	 * @return stripe responsible for the element
+	 */
+	private HashSet<E> stripe(final E elem) {
+		if (stripes.length == 1)
+			return stripes[0];
+		final int hash = stra != null ? stra.hashCode(elem) : elem.hashCode();
+		// take the upper bits, the lower ones get used for the stripes buckets
+		return stripes[hash * 0x9E3779B9 >>> stripeShift];
+	}
+
+	@Override
+	public boolean add(final E elem) {
+		final HashSet<E> stripe = stripe(elem);
+		// queued under the stripe monitor so no duplicate add reports success
+		// for an element which gets rolled back
+		final boolean added;
+		synchronized (stripe) {
+			if (!stripe.put(elem))
+				return true;
+			if (!(added = queue.add(elem)))
+				stripe.remove(elem);
+		}
+		if (!added) {
+			LOG.error("Queue rejected addition cuz too full [" + elem + "][" + getClass().getSimpleName() + "]");
+			return false;
+		}
+		if (LOG.isTraceEnabled())
+			LOG.trace("Added [" + elem + "]");
+		return true;
+	}
+
+	@Override
+	public int addAll(final E[] elems, final int off, final int len) {
+		for (int i = 0; i < len; i++)
+			if (!add(elems[off + i]))
+				return i;
+		return len;
+	}
+
+	@Override
+	public E take() {
+		final E elem = queue.take();
+		if (elem != null)
+			release(elem);
+		return elem;
+	}
+
+	@Override
+	public int drainTo(final Consumer<E> consumer, final int max) {
+		return queue.drainTo(elem -> {
+			release(elem);
+			consumer.accept(elem);
+		}, max);
+	}
+
+	/**
+	 * removes a taken element from the membership index
+	 *
+	 * @param elem
+	 */
+	private void release(final E elem) {
+		final HashSet<E> stripe = stripe(elem);
+		final boolean removed;
+		synchronized (stripe) {
+			removed = stripe.remove(elem);
+		}
+		if (!removed)
+			LOG.error("Error element in queue which was not added or has changed [" + elem + "][" + elem.hashCode()
+					+ "]");
+	}
+
+	@Override
+	public E peek() {
+		return queue.peek();
+	}
+
+	@Override
+	public int size() {
+		return queue.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return queue.isEmpty();
+	}
+
+	/**
+	 * clears the queue
+	 */
+	@Override
+	public void clear() {
+		while (take() != null)
+			;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s [size=%s,stripes=%s]", getClass().getSimpleName(), size(), stripes.length);
+	}
+}
@@ -0,0 +1,195 @@
+package net.xy.codebase.collection;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * lock free ordered queue on a skiplist. Elements stay sorted on insert so add
+ * and take are O(log n) and no resort is needed, take returns the smallest
+ * element. Equal elements are taken in insertion order.
+ *
+ * @author Xyan
+ *
+ * @param <E>
+ */
+public class ConcurrentSortedQueue<E> implements Queue<E> {
+	/**
+	 * ordered entries
+	 */
+	private final ConcurrentSkipListMap<Entry<E>, Boolean> map;
+	/**
+	 * element ordering
+	 */
+	private final Comparator<? super E> comparator;
+	/**
+	 * insertion counter as tie breaker for equal elements
+	 */
+	private final AtomicLong sequence = new AtomicLong();
+	/**
+	 * amount of contained elements, the skiplists own size is O(n)
+	 */
+	private final AtomicInteger size = new AtomicInteger();
+	/**
+	 * maximum allowed element count
+	 */
+	private final int maxCount;
+
+	/**
+	 * default
+	 *
+	 * @param clazz
+	 * @param maxCount
+	 * @param comparator
+	 */
+	public ConcurrentSortedQueue(final Class<E> clazz, final int maxCount, final Comparator<? super E> comparator) {
+		this.maxCount = maxCount;
+		this.comparator = comparator;
+		map = new ConcurrentSkipListMap<Entry<E>, Boolean>((a, b) -> {
+			final int res = comparator.compare(a.elem, b.elem);
+			return res != 0 ? res : Long.compare(a.seq, b.seq);
+		});
+	}
+
+	/**
+	 * adds an element in order as long as the maximum size is not reached
+	 *
+	 * @param elem
+	 * @return true on success
+	 */
+	@Override
+	public boolean add(final E elem) {
+		if (elem == null)
+			throw new IllegalArgumentException("Null elements are not supported");
+		for (;;) {
+			final int s = size.get();
+			if (s >= maxCount)
+				return false;
+			if (size.compareAndSet(s, s + 1))
+				break;
+		}
+		map.put(new Entry<E>(elem, sequence.getAndIncrement()), Boolean.TRUE);
+		return true;
+	}
+
+	@Override
+	public int addAll(final E[] elems, final int off, final int len) {
+		for (int i = 0; i < len; i++)
+			if (!add(elems[off + i]))
+				return i;
+		return len;
+	}
+
+	/**
+	 * take and remove the smallest element or return null.
+	 *
+	 * @return
+	 */
+	@Override
+	public E take() {
+		final Map.Entry<Entry<E>, Boolean> first = map.pollFirstEntry();
+		if (first == null)
+			return null;
+		size.decrementAndGet();
+		return first.getKey().elem;
+	}
+
+	@Override
+	public int drainTo(final Consumer<E> consumer, final int max) {
+		int count = 0;
+		E elem;
+		while (count < max && (elem = take()) != null) {
+			consumer.accept(elem);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * takes all elements smaller or equal to bound in order
+	 *
+	 * @param bound
+	 * @param consumer
+	 * @param max
+	 * @return amount of taken elements
+	 */
+	public int drainTo(final E bound, final Consumer<E> consumer, final int max) {
+		int count = 0;
+		while (count < max) {
+			final Map.Entry<Entry<E>, Boolean> head = map.firstEntry();
+			if (head == null)
+				break;
+			final Entry<E> first = head.getKey();
+			if (comparator.compare(first.elem, bound) > 0)
+				break;
+			// only one concurrent drainer wins the entry
+			if (map.remove(first) != null) {
+				size.decrementAndGet();
+				consumer.accept(first.elem);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return smallest element without removing
+	 */
+	@Override
+	public E peek() {
+		final Map.Entry<Entry<E>, Boolean> first = map.firstEntry();
+		return first != null ? first.getKey().elem : null;
+	}
+
+	/**
+	 * @return amount of contained elements
+	 */
+	@Override
+	public int size() {
+		return size.get();
+	}
+
+	/**
+	 * whether size == 0
+	 *
+	 * @return
+	 */
+	@Override
+	public boolean isEmpty() {
+		return map.isEmpty();
+	}
+
+	/**
+	 * clears the queue
+	 */
+	@Override
+	public void clear() {
+		while (take() != null)
+			;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s [size=%s,maxCount=%s]", getClass().getSimpleName(), size(), maxCount);
+	}
+
+	/**
+	 * element holder with insertion sequence
+	 *
+	 * @author Xyan
+	 *
+	 * @param <E>
+	 */
+	private static class Entry<E> {
+		private final E elem;
+		private final long seq;
+
+		public Entry(final E elem, final long seq) {
+			this.elem = elem;
+			this.seq = seq;
+		}
+	}
+}
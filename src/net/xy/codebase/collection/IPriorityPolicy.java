@@ -0,0 +1,46 @@
+package net.xy.codebase.collection;
+
+/**
+ * decides which priority level gets served next by the PriorityArrayQueues.
+ * Levels are passed as bitmap of non empty levels, bit 0 is level 0 and the
+ * highest priority.
+ *
+ * @author Xyan
+ *
+ */
+public interface IPriorityPolicy {
+	/**
+	 * @param levels
+	 *            bitmap of non empty levels, never 0
+	 * @return level to take from next, must be one of the set bits
+	 */
+	public int select(long levels);
+
+	/**
+	 * @param level
+	 * @return maximum amount of elements drained at once from the level
+	 *         before selecting again
+	 */
+	public int quantum(int level);
+
+	/**
+	 * called after an element was taken from the level
+	 *
+	 * @param level
+	 */
+	public void served(int level);
+
+	/**
+	 * called when the level switched from empty to non empty
+	 *
+	 * @param level
+	 */
+	public void activated(int level);
+
+	/**
+	 * @return maximum amount of levels the policy can serve
+	 */
+	public default int getLevels() {
+		return Long.SIZE;
+	}
+}
@@ -0,0 +1,240 @@
+package net.xy.codebase.collection;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * unbounded multi producer multi consumer queue of linked array segments.
+ * Producers and consumers claim slots by fetch and add on the current
+ * segment, a full segment gets a new one appended and drained ones are left
+ * to the garbage collector. Nothing gets copied and nobody waits for growth.
+ * The maximum count is a soft limit checked against the approximate size.
+ *
+ * @author Xyan
+ *
+ * @param <E>
+ */
+public class LinkedArrayQueue<E> implements Queue<E> {
+	/**
+	 * default amount of slots per segment
+	 */
+	public static final int SEGMENT_SIZE = 128;
+	/**
+	 * marks slots already consumed or abandoned by a consumer
+	 */
+	private static final Object TAKEN = new Object();
+	/**
+	 * amount of slots per segment
+	 */
+	private final int segmentSize;
+	/**
+	 * maximum allowed element count
+	 */
+	private final int maxCount;
+	/**
+	 * segment consumers take from
+	 */
+	private final AtomicReference<Segment> head;
+	/**
+	 * segment producers add to
+	 */
+	private final AtomicReference<Segment> tail;
+
+	/**
+	 * default
+	 *
+	 * @param clazz
+	 * @param maxCount
+	 */
+	public LinkedArrayQueue(final Class<E> clazz, final int maxCount) {
+		this(clazz, maxCount, SEGMENT_SIZE);
+	}
+
+	/**
+	 * default with given segment size
+	 *
+	 * @param clazz
+	 * @param maxCount
+	 * @param segmentSize
+	 */
+	public LinkedArrayQueue(final Class<E> clazz, final int maxCount, final int segmentSize) {
+		if (segmentSize < 2)
+			throw new IllegalArgumentException("Segment size too small [" + segmentSize + "]");
+		this.maxCount = maxCount;
+		this.segmentSize = segmentSize;
+		final Segment first = new Segment(0, null);
+		head = new AtomicReference<Segment>(first);
+		tail = new AtomicReference<Segment>(first);
+	}
+
+	/**
+	 * adds an element as long as the maximum size is not reached
+	 *
+	 * @param elem
+	 * @return true on success
+	 */
+	@Override
+	public boolean add(final E elem) {
+		if (elem == null)
+			throw new IllegalArgumentException("Null elements are not supported");
+		if (size() >= maxCount)
+			return false;
+		for (;;) {
+			final Segment ltail = tail.get();
+			final int idx = ltail.enqIdx.getAndIncrement();
+			if (idx >= segmentSize) {
+				if (ltail != tail.get())
+					continue;
+				final Segment lnext = ltail.next.get();
+				if (lnext == null) {
+					final Segment nue = new Segment(ltail.id + 1, elem);
+					if (ltail.next.compareAndSet(null, nue)) {
+						tail.compareAndSet(ltail, nue);
+						return true;
+					}
+				} else
+					tail.compareAndSet(ltail, lnext);
+				continue;
+			}
+			if (ltail.items.compareAndSet(idx, null, elem))
+				return true;
+			// slot got abandoned by an faster consumer
+		}
+	}
+
+	/**
+	 * take and remove top element or return null.
+	 *
+	 * @return
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public E take() {
+		for (;;) {
+			final Segment lhead = head.get();
+			if (lhead.deqIdx.get() >= lhead.enqIdx.get() && lhead.next.get() == null)
+				return null;
+			final int idx = lhead.deqIdx.getAndIncrement();
+			if (idx >= segmentSize) {
+				final Segment lnext = lhead.next.get();
+				if (lnext == null)
+					return null;
+				head.compareAndSet(lhead, lnext);
+				continue;
+			}
+			final Object item = lhead.items.getAndSet(idx, TAKEN);
+			if (item != null)
+				return (E) item;
+		}
+	}
+
+	@Override
+	public int addAll(final E[] elems, final int off, final int len) {
+		for (int i = 0; i < len; i++)
+			if (!add(elems[off + i]))
+				return i;
+		return len;
+	}
+
+	@Override
+	public int drainTo(final Consumer<E> consumer, final int max) {
+		int count = 0;
+		E elem;
+		while (count < max && (elem = take()) != null) {
+			consumer.accept(elem);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @return next element to take without removing, approximate
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public E peek() {
+		for (Segment seg = head.get(); seg != null; seg = seg.next.get()) {
+			final int end = Math.min(seg.enqIdx.get(), segmentSize);
+			for (int i = Math.min(seg.deqIdx.get(), segmentSize); i < end; i++) {
+				final Object item = seg.items.get(i);
+				if (item != null && item != TAKEN)
+					return (E) item;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return approximate amount of contained elements
+	 */
+	@Override
+	public int size() {
+		for (;;) {
+			final Segment lhead = head.get();
+			final Segment ltail = tail.get();
+			final long deq = lhead.id * segmentSize + Math.min(lhead.deqIdx.get(), segmentSize);
+			final long enq = ltail.id * segmentSize + Math.min(ltail.enqIdx.get(), segmentSize);
+			if (lhead == head.get())
+				return (int) Math.min(Math.max(enq - deq, 0), Integer.MAX_VALUE);
+		}
+	}
+
+	/**
+	 * whether size == 0
+	 *
+	 * @return
+	 */
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * clears the queue
+	 */
+	@Override
+	public void clear() {
+		while (take() != null)
+			;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s [size=%s,maxCount=%s]", getClass().getSimpleName(), size(), maxCount);
+	}
+
+	/**
+	 * one array segment of the queue
+	 *
+	 * @author Xyan
+	 *
+	 */
+	private class Segment {
+		/**
+		 * sequential segment number, used for size calculation
+		 */
+		private final long id;
+		private final AtomicReferenceArray<Object> items = new AtomicReferenceArray<Object>(segmentSize);
+		private final AtomicInteger enqIdx;
+		private final AtomicInteger deqIdx = new AtomicInteger();
+		private final AtomicReference<Segment> next = new AtomicReference<Segment>();
+
+		/**
+		 * default
+		 *
+		 * @param id
+		 * @param first
+		 *            element to put into the first slot or null
+		 */
+		public Segment(final long id, final Object first) {
+			this.id = id;
+			if (first != null) {
+				items.lazySet(0, first);
+				enqIdx = new AtomicInteger(1);
+			} else
+				enqIdx = new AtomicInteger();
+		}
+	}
+}
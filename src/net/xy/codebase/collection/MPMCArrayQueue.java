@@ -0,0 +1,230 @@
+package net.xy.codebase.collection;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+import net.xy.codebase.Primitive;
+import net.xy.codebase.concurrent.PaddedAtomicLong;
+
+/**
+ * bounded multi producer multi consumer ringbuffer with per slot sequence
+ * numbers. Capacity gets rounded up to the next power of two so slots are
+ * selected by masking instead of division. Producers and consumers only
+ * contend on their own padded index, an add or take costs a single CAS.
+ *
+ * @author Xyan
+ *
+ * @param <E>
+ */
+public class MPMCArrayQueue<E> implements Queue<E> {
+	/**
+	 * backing array container
+	 */
+	protected final AtomicReferenceArray<E> elements;
+	/**
+	 * per slot sequence, equals the put index when the slot is writable and
+	 * put index + 1 when the slot is readable
+	 */
+	protected final AtomicLongArray sequences;
+	/**
+	 * capacity - 1 for index masking
+	 */
+	protected final int mask;
+	/**
+	 * next index to put next element in
+	 */
+	protected final PaddedAtomicLong putIndex = new PaddedAtomicLong();
+	/**
+	 * next index to retrieve object from
+	 */
+	protected final PaddedAtomicLong getIndex = new PaddedAtomicLong();
+
+	/**
+	 * default
+	 *
+	 * @param clazz
+	 * @param capacity
+	 *            gets rounded up to the next power of two
+	 */
+	public MPMCArrayQueue(final Class<E> clazz, final int capacity) {
+		final int cap = Primitive.nextPowerOfTwo(Math.max(capacity, 2));
+		elements = new AtomicReferenceArray<E>(cap);
+		sequences = new AtomicLongArray(cap);
+		for (int i = 0; i < cap; i++)
+			sequences.set(i, i);
+		mask = cap - 1;
+	}
+
+	/**
+	 * adds an element as long as the maximum size is not reached
+	 *
+	 * @param elem
+	 * @return true on success
+	 */
+	@Override
+	public boolean add(final E elem) {
+		if (elem == null)
+			throw new IllegalArgumentException("Null elements are not supported");
+		for (;;) {
+			final long pos = putIndex.get();
+			final int idx = (int) pos & mask;
+			final long dif = sequences.get(idx) - pos;
+			if (dif == 0) {
+				if (putIndex.compareAndSet(pos, pos + 1)) {
+					elements.lazySet(idx, elem);
+					sequences.lazySet(idx, pos + 1);
+					return true;
+				}
+			} else if (dif < 0)
+				return false;
+		}
+	}
+
+	/**
+	 * adds as many elements as there are consecutive writable slots, the
+	 * whole range is claimed with one CAS
+	 *
+	 * @param elems
+	 * @param off
+	 * @param len
+	 * @return amount of added elements
+	 */
+	@Override
+	public int addAll(final E[] elems, final int off, final int len) {
+		for (int i = 0; i < len; i++)
+			if (elems[off + i] == null)
+				throw new IllegalArgumentException("Null elements are not supported");
+		if (len <= 0)
+			return 0;
+		for (;;) {
+			final long pos = putIndex.get();
+			int amount = 0;
+			while (amount < len && sequences.get((int) (pos + amount) & mask) == pos + amount)
+				amount++;
+			if (amount == 0) {
+				if (sequences.get((int) pos & mask) - pos < 0)
+					return 0;
+			} else if (putIndex.compareAndSet(pos, pos + amount)) {
+				for (int i = 0; i < amount; i++) {
+					final int idx = (int) (pos + i) & mask;
+					elements.lazySet(idx, elems[off + i]);
+					sequences.lazySet(idx, pos + i + 1);
+				}
+				return amount;
+			}
+		}
+	}
+
+	/**
+	 * takes as many elements as there are consecutive readable slots, the
+	 * whole range is claimed with one CAS
+	 *
+	 * @param consumer
+	 * @param max
+	 * @return amount of taken elements
+	 */
+	@Override
+	public int drainTo(final Consumer<E> consumer, final int max) {
+		if (max <= 0)
+			return 0;
+		for (;;) {
+			final long pos = getIndex.get();
+			int amount = 0;
+			while (amount < max && sequences.get((int) (pos + amount) & mask) == pos + amount + 1)
+				amount++;
+			if (amount == 0) {
+				if (sequences.get((int) pos & mask) - (pos + 1) < 0)
+					return 0;
+			} else if (getIndex.compareAndSet(pos, pos + amount)) {
+				for (int i = 0; i < amount; i++) {
+					final int idx = (int) (pos + i) & mask;
+					final E res = elements.get(idx);
+					elements.lazySet(idx, null);
+					sequences.lazySet(idx, pos + i + mask + 1);
+					consumer.accept(res);
+				}
+				return amount;
+			}
+		}
+	}
+
+	/**
+	 * take and remove top element or return null.
+	 *
+	 * @return
+	 */
+	@Override
+	public E take() {
+		for (;;) {
+			final long pos = getIndex.get();
+			final int idx = (int) pos & mask;
+			final long dif = sequences.get(idx) - (pos + 1);
+			if (dif == 0) {
+				if (getIndex.compareAndSet(pos, pos + 1)) {
+					final E res = elements.get(idx);
+					elements.lazySet(idx, null);
+					sequences.lazySet(idx, pos + mask + 1);
+					return res;
+				}
+			} else if (dif < 0)
+				return null;
+		}
+	}
+
+	/**
+	 * @return next element to take without removing
+	 */
+	@Override
+	public E peek() {
+		final long pos = getIndex.get();
+		final int idx = (int) pos & mask;
+		if (sequences.get(idx) == pos + 1)
+			return elements.get(idx);
+		return null;
+	}
+
+	/**
+	 * @return amount of contained elements
+	 */
+	@Override
+	public int size() {
+		for (;;) {
+			final long get = getIndex.get();
+			final long put = putIndex.get();
+			if (get == getIndex.get())
+				return (int) Math.min(Math.max(put - get, 0), capacity());
+		}
+	}
+
+	/**
+	 * whether size == 0
+	 *
+	 * @return
+	 */
+	@Override
+	public boolean isEmpty() {
+		return getIndex.get() >= putIndex.get();
+	}
+
+	/**
+	 * @return maximum amount of elements
+	 */
+	public int capacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * clears the queue
+	 */
+	@Override
+	public void clear() {
+		while (take() != null)
+			;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s [size=%s,capacity=%s]", getClass().getSimpleName(), size(), capacity());
+	}
+}
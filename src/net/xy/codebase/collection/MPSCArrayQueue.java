@@ -0,0 +1,211 @@
+package net.xy.codebase.collection;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+import net.xy.codebase.Primitive;
+import net.xy.codebase.concurrent.PaddedAtomicLong;
+
+/**
+ * bounded multi producer single consumer ringbuffer. Producers claim a slot
+ * with one CAS on the put index and check capacity against a shared cache of
+ * the get index. The consumer works CAS free with ordered writes. Only one
+ * thread may take at the same time.
+ *
+ * @author Xyan
+ *
+ * @param <E>
+ */
+public class MPSCArrayQueue<E> implements Queue<E> {
+	/**
+	 * backing array container
+	 */
+	protected final AtomicReferenceArray<E> elements;
+	/**
+	 * capacity - 1 for index masking
+	 */
+	protected final int mask;
+	/**
+	 * next index to put next element in
+	 */
+	protected final PaddedAtomicLong putIndex = new PaddedAtomicLong();
+	/**
+	 * next index to retrieve object from
+	 */
+	protected final PaddedAtomicLong getIndex = new PaddedAtomicLong();
+	/**
+	 * producers shared copy of the get index
+	 */
+	private volatile long getIndexCache;
+
+	/**
+	 * default
+	 *
+	 * @param clazz
+	 * @param capacity
+	 *            gets rounded up to the next power of two
+	 */
+	public MPSCArrayQueue(final Class<E> clazz, final int capacity) {
+		final int cap = Primitive.nextPowerOfTwo(Math.max(capacity, 2));
+		elements = new AtomicReferenceArray<E>(cap);
+		mask = cap - 1;
+	}
+
+	/**
+	 * adds an element as long as the maximum size is not reached
+	 *
+	 * @param elem
+	 * @return true on success
+	 */
+	@Override
+	public boolean add(final E elem) {
+		if (elem == null)
+			throw new IllegalArgumentException("Null elements are not supported");
+		for (;;) {
+			final long put = putIndex.get();
+			if (put - getIndexCache > mask) {
+				final long get = getIndex.get();
+				getIndexCache = get;
+				if (put - get > mask)
+					return false;
+			}
+			if (putIndex.compareAndSet(put, put + 1)) {
+				elements.lazySet((int) put & mask, elem);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * adds as many elements as fit, the whole range is claimed with one CAS
+	 *
+	 * @param elems
+	 * @param off
+	 * @param len
+	 * @return amount of added elements
+	 */
+	@Override
+	public int addAll(final E[] elems, final int off, final int len) {
+		for (int i = 0; i < len; i++)
+			if (elems[off + i] == null)
+				throw new IllegalArgumentException("Null elements are not supported");
+		for (;;) {
+			final long put = putIndex.get();
+			long free = capacity() - (put - getIndexCache);
+			if (free < len) {
+				final long get = getIndex.get();
+				getIndexCache = get;
+				free = capacity() - (put - get);
+			}
+			final int amount = (int) Math.min(len, free);
+			if (amount <= 0)
+				return 0;
+			if (putIndex.compareAndSet(put, put + amount)) {
+				for (int i = 0; i < amount; i++)
+					elements.lazySet((int) (put + i) & mask, elems[off + i]);
+				return amount;
+			}
+		}
+	}
+
+	/**
+	 * takes up to max visible elements and releases their slots with one
+	 * index update, consumer thread only
+	 *
+	 * @param consumer
+	 * @param max
+	 * @return amount of taken elements
+	 */
+	@Override
+	public int drainTo(final Consumer<E> consumer, final int max) {
+		final long get = getIndex.get();
+		int amount = 0;
+		for (; amount < max; amount++) {
+			final int idx = (int) (get + amount) & mask;
+			final E res = elements.get(idx);
+			// empty or claimed but not yet visible
+			if (res == null)
+				break;
+			elements.lazySet(idx, null);
+			consumer.accept(res);
+		}
+		if (amount > 0)
+			getIndex.lazySet(get + amount);
+		return amount;
+	}
+
+	/**
+	 * take and remove top element or return null, consumer thread only
+	 *
+	 * @return
+	 */
+	@Override
+	public E take() {
+		final long get = getIndex.get();
+		final int idx = (int) get & mask;
+		E res = elements.get(idx);
+		if (res == null) {
+			if (get >= putIndex.get())
+				return null;
+			// slot claimed but not yet visible
+			do
+				res = elements.get(idx);
+			while (res == null);
+		}
+		elements.lazySet(idx, null);
+		getIndex.lazySet(get + 1);
+		return res;
+	}
+
+	/**
+	 * @return next element to take without removing
+	 */
+	@Override
+	public E peek() {
+		return elements.get((int) getIndex.get() & mask);
+	}
+
+	/**
+	 * @return amount of contained elements
+	 */
+	@Override
+	public int size() {
+		for (;;) {
+			final long get = getIndex.get();
+			final long put = putIndex.get();
+			if (get == getIndex.get())
+				return (int) Math.min(Math.max(put - get, 0), capacity());
+		}
+	}
+
+	/**
+	 * whether size == 0
+	 *
+	 * @return
+	 */
+	@Override
+	public boolean isEmpty() {
+		return getIndex.get() >= putIndex.get();
+	}
+
+	/**
+	 * @return maximum amount of elements
+	 */
+	public int capacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * clears the queue, consumer thread only
+	 */
+	@Override
+	public void clear() {
+		while (take() != null)
+			;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s [size=%s,capacity=%s]", getClass().getSimpleName(), size(), capacity());
+	}
+}
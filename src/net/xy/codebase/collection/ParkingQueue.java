@@ -1,10 +1,13 @@
 package net.xy.codebase.collection;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import net.xy.codebase.concurrent.IWaitStrategy;
 import net.xy.codebase.concurrent.Semaphore;
 
 /**
@@ -16,9 +19,26 @@ import net.xy.codebase.concurrent.Semaphore;
  */
 public class ParkingQueue<E> {
 	private static final Logger LOG = LoggerFactory.getLogger(ParkingQueue.class);
+	/**
+	 * minimum millis between two full messages
+	 */
+	private static final long FULL_LOG_INTERVAL = 1000;
 	private final Queue<E> aq;
 	private final Semaphore added = new Semaphore();
 	private final Semaphore empty = new Semaphore();
+	/**
+	 * signaled on takes while producers are blocked
+	 */
+	private final Semaphore space = new Semaphore();
+	/**
+	 * amount of producers waiting in offer, takers skip the signal when 0
+	 */
+	private final AtomicInteger blocked = new AtomicInteger();
+	/**
+	 * for full logging
+	 */
+	private volatile long lastFullMessage;
+	private final AtomicInteger fullCounter = new AtomicInteger();
 
 	/**
 	 * default with default ArrayQueue
@@ -39,6 +59,22 @@ public class ParkingQueue<E> {
 		this.aq = aq;
 	}
 
+	/**
+	 * @return false when the backing queue allows only one taking thread
+	 */
+	public boolean isMultiConsumer() {
+		return !(aq instanceof MPSCArrayQueue) && !(aq instanceof SPSCArrayQueue);
+	}
+
+	/**
+	 * sets how takers wait for new elements
+	 *
+	 * @param waitStrategy
+	 */
+	public void setWaitStrategy(final IWaitStrategy waitStrategy) {
+		added.setWaitStrategy(waitStrategy);
+	}
+
 	/**
 	 * adds an element as long as the maximum size is not reached
 	 *
@@ -46,11 +82,125 @@ public class ParkingQueue<E> {
 	 * @return true on success
 	 */
 	public boolean add(final E elem) {
+		final boolean res = offer(elem);
+		if (!res)
+			logFull(elem, 1);
+		return res;
+	}
+
+	/**
+	 * adds an element as long as the maximum size is not reached, the caller
+	 * handles the failure
+	 *
+	 * @param elem
+	 * @return true on success
+	 */
+	public boolean offer(final E elem) {
 		final boolean res = aq.add(elem);
 		if (res)
 			added.call();
-		else
-			LOG.error("ParkinQueue is full droping [" + elem + "][" + size() + "]");
+		return res;
+	}
+
+	/**
+	 * waits until the element could be added
+	 *
+	 * @param elem
+	 * @param waitMillis
+	 *            -1 waits endless
+	 * @return true on success, false on timeout
+	 */
+	public boolean offer(final E elem, final long waitMillis) {
+		if (offer(elem))
+			return true;
+		if (waitMillis == 0)
+			return false;
+		final long endTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+		// announce before the retry so takers either see us or we see their slot
+		blocked.incrementAndGet();
+		try {
+			for (;;) {
+				final int state = space.getState();
+				if (offer(elem))
+					return true;
+				if (waitMillis < 0) {
+					space.await(state);
+					continue;
+				}
+				final long waitTime = endTime - System.nanoTime();
+				if (waitTime <= 0)
+					return false;
+				space.await(state, waitTime);
+			}
+		} finally {
+			blocked.decrementAndGet();
+		}
+	}
+
+	/**
+	 * adds up to len elements and wakes as many waiting takers as needed
+	 *
+	 * @param elems
+	 * @param off
+	 * @param len
+	 * @return amount of added elements
+	 */
+	public int addAll(final E[] elems, final int off, final int len) {
+		final int res = aq.addAll(elems, off, len);
+		if (res > 0) {
+			final int wake = Math.min(res, Math.max(1, added.getWaiters()));
+			for (int i = 0; i < wake; i++)
+				added.call();
+		}
+		if (res < len)
+			logFull(elems[off + res], len - res);
+		return res;
+	}
+
+	/**
+	 * logs dropped elements at most once per interval
+	 *
+	 * @param elem
+	 * @param amount
+	 */
+	private void logFull(final E elem, final int amount) {
+		final long now = System.currentTimeMillis();
+		if (now - lastFullMessage < FULL_LOG_INTERVAL) {
+			fullCounter.addAndGet(amount);
+			return;
+		}
+		lastFullMessage = now;
+		LOG.error("ParkingQueue is full droping [" + amount + "][" + size() + "][" + fullCounter.getAndSet(0) + "]["
+				+ elem + "]");
+	}
+
+	/**
+	 * wakes producers blocked in offer
+	 *
+	 * @param amount
+	 *            of freed slots
+	 */
+	private void freed(final int amount) {
+		if (amount > 0 && blocked.get() > 0) {
+			if (amount == 1)
+				space.call();
+			else
+				space.callAll();
+		}
+	}
+
+	/**
+	 * takes up to max elements without waiting
+	 *
+	 * @param consumer
+	 * @param max
+	 * @return amount of taken elements
+	 */
+	public int drainTo(final Consumer<E> consumer, final int max) {
+		final int res = aq.drainTo(consumer, max);
+		freed(res);
+		if (res < max)
+			empty.callAll();
 		return res;
 	}
 
@@ -60,7 +210,10 @@ public class ParkingQueue<E> {
 	 * @return
 	 */
 	public E take() {
-		return aq.take();
+		final E elem = aq.take();
+		if (elem != null)
+			freed(1);
+		return elem;
 	}
 
 	/**
@@ -92,6 +245,8 @@ public class ParkingQueue<E> {
 			}
 			break;
 		}
+		if (elem != null)
+			freed(1);
 		return elem;
 	}
 
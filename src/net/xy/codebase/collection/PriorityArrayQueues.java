@@ -1,9 +1,13 @@
 package net.xy.codebase.collection;
 
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
- * composite object for managing different priority arrayqueues
+ * composite object for managing different priority arrayqueues. Non empty
+ * levels are tracked in an atomic bitmap so take jumps directly to a populated
+ * level, which level gets served is decided by an exchangeable policy.
  *
  * @author Xyan
  *
@@ -11,6 +15,14 @@ import java.util.Arrays;
 public class PriorityArrayQueues<E> implements Queue<E> {
 
 	private final ArrayQueue<E>[] aqs;
+	/**
+	 * bit per level which may contain elements
+	 */
+	private final AtomicLong nonEmpty = new AtomicLong();
+	/**
+	 * level selection policy
+	 */
+	private volatile IPriorityPolicy policy = StrictPriorityPolicy.INSTANCE;
 
 	@SuppressWarnings("unchecked")
 	public PriorityArrayQueues(final int levels, final int maxCapaciti, final Class<E> clazz) {
@@ -20,7 +32,26 @@ public class PriorityArrayQueues<E> implements Queue<E> {
 	}
 
 	public PriorityArrayQueues(final ArrayQueue<E>[] aqs) {
+		if (aqs.length > Long.SIZE)
+			throw new IllegalArgumentException("Too many priority levels [" + aqs.length + "]");
 		this.aqs = aqs;
+		for (int i = 0; i < aqs.length; i++)
+			if (aqs[i] != null && !aqs[i].isEmpty())
+				setBit(i);
+	}
+
+	/**
+	 * sets the policy which decides the next level to take from, default is
+	 * strict priority order
+	 *
+	 * @param policy
+	 *            must serve at least the amount of levels of this queue
+	 */
+	public void setPolicy(final IPriorityPolicy policy) {
+		if (policy.getLevels() < aqs.length)
+			throw new IllegalArgumentException(
+					"Policy serves too few levels [" + policy.getLevels() + "][" + aqs.length + "]");
+		this.policy = policy;
 	}
 
 	/**
@@ -31,7 +62,37 @@ public class PriorityArrayQueues<E> implements Queue<E> {
 	 */
 	@Override
 	public boolean add(final E elem) {
-		return aqs[getPrio(elem)].add(elem);
+		final int prio = getPrio(elem);
+		if (!aqs[prio].add(elem))
+			return false;
+		markNonEmpty(prio);
+		return true;
+	}
+
+	/**
+	 * adds runs of equal priority at once, stops on the first rejection
+	 *
+	 * @param elems
+	 * @param off
+	 * @param len
+	 * @return amount of added elements
+	 */
+	@Override
+	public int addAll(final E[] elems, final int off, final int len) {
+		int res = 0;
+		while (res < len) {
+			final int prio = getPrio(elems[off + res]);
+			int run = 1;
+			while (res + run < len && getPrio(elems[off + res + run]) == prio)
+				run++;
+			final int added = aqs[prio].addAll(elems, off + res, run);
+			if (added > 0)
+				markNonEmpty(prio);
+			res += added;
+			if (added < run)
+				break;
+		}
+		return res;
 	}
 
 	/**
@@ -46,6 +107,48 @@ public class PriorityArrayQueues<E> implements Queue<E> {
 		return 0;
 	}
 
+	/**
+	 * sets the levels bit after an addition
+	 *
+	 * @param level
+	 */
+	private void markNonEmpty(final int level) {
+		if ((nonEmpty.get() & 1L << level) == 0 && setBit(level))
+			policy.activated(level);
+	}
+
+	/**
+	 * @param level
+	 * @return true when the bit was changed
+	 */
+	private boolean setBit(final int level) {
+		final long bit = 1L << level;
+		for (;;) {
+			final long bits = nonEmpty.get();
+			if ((bits & bit) != 0)
+				return false;
+			if (nonEmpty.compareAndSet(bits, bits | bit))
+				return true;
+		}
+	}
+
+	/**
+	 * clears the levels bit and sets it again in case an concurrent addition
+	 * slipped in between
+	 *
+	 * @param level
+	 */
+	private void markEmpty(final int level) {
+		final long bit = 1L << level;
+		for (;;) {
+			final long bits = nonEmpty.get();
+			if ((bits & bit) == 0 || nonEmpty.compareAndSet(bits, bits & ~bit))
+				break;
+		}
+		if (!aqs[level].isEmpty())
+			setBit(level);
+	}
+
 	/**
 	 * take and remove top element or return null.
 	 *
@@ -53,11 +156,47 @@ public class PriorityArrayQueues<E> implements Queue<E> {
 	 */
 	@Override
 	public E take() {
-		E res = null;
-		for (final ArrayQueue<E> aq : aqs)
-			if ((res = aq.take()) != null)
+		final IPriorityPolicy pol = policy;
+		for (;;) {
+			final long bits = nonEmpty.get();
+			if (bits == 0)
+				return null;
+			final int level = pol.select(bits);
+			final E res = aqs[level].take();
+			if (res != null) {
+				pol.served(level);
+				return res;
+			}
+			markEmpty(level);
+		}
+	}
+
+	/**
+	 * takes up to max elements in the order given by the policy
+	 *
+	 * @param consumer
+	 * @param max
+	 * @return amount of taken elements
+	 */
+	@Override
+	public int drainTo(final Consumer<E> consumer, final int max) {
+		final IPriorityPolicy pol = policy;
+		int count = 0;
+		while (count < max) {
+			final long bits = nonEmpty.get();
+			if (bits == 0)
 				break;
-		return res;
+			final int level = pol.select(bits);
+			final int amount = Math.min(max - count, pol.quantum(level));
+			final int drained = aqs[level].drainTo(consumer, amount);
+			if (drained > 0) {
+				pol.served(level);
+				count += drained;
+			}
+			if (drained < amount)
+				markEmpty(level);
+		}
+		return count;
 	}
 
 	/**
@@ -66,8 +205,8 @@ public class PriorityArrayQueues<E> implements Queue<E> {
 	@Override
 	public E peek() {
 		E res = null;
-		for (final ArrayQueue<E> aq : aqs)
-			if ((res = aq.peek()) != null)
+		for (long bits = nonEmpty.get(); bits != 0; bits &= bits - 1)
+			if ((res = aqs[Long.numberOfTrailingZeros(bits)].peek()) != null)
 				break;
 		return res;
 	}
@@ -78,8 +217,8 @@ public class PriorityArrayQueues<E> implements Queue<E> {
 	@Override
 	public int size() {
 		int count = 0;
-		for (final ArrayQueue<E> aq : aqs)
-			count += aq.size();
+		for (long bits = nonEmpty.get(); bits != 0; bits &= bits - 1)
+			count += aqs[Long.numberOfTrailingZeros(bits)].size();
 		return count;
 	}
 
@@ -90,7 +229,10 @@ public class PriorityArrayQueues<E> implements Queue<E> {
 	 */
 	@Override
 	public boolean isEmpty() {
-		return size() == 0;
+		for (long bits = nonEmpty.get(); bits != 0; bits &= bits - 1)
+			if (!aqs[Long.numberOfTrailingZeros(bits)].isEmpty())
+				return false;
+		return true;
 	}
 
 	/**
@@ -98,8 +240,10 @@ public class PriorityArrayQueues<E> implements Queue<E> {
 	 */
 	@Override
 	public void clear() {
-		for (final ArrayQueue<E> aq : aqs)
-			aq.clear();
+		for (int i = 0; i < aqs.length; i++) {
+			aqs[i].clear();
+			markEmpty(i);
+		}
 	}
 
 	@Override
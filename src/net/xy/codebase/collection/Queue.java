@@ -1,5 +1,7 @@
 package net.xy.codebase.collection;
 
+import java.util.function.Consumer;
+
 /**
  * general contract for queues
  * 
@@ -23,6 +25,30 @@ public interface Queue<E> {
 	 */
 	public E take();
 
+	/**
+	 * adds up to len elements from the array as long as the maximum size is
+	 * not reached, the space gets claimed at once where possible
+	 *
+	 * @param elems
+	 * @param off
+	 *            start index in elems
+	 * @param len
+	 *            amount of elements to add
+	 * @return amount of added elements, the remaining ones got rejected
+	 */
+	public int addAll(E[] elems, int off, int len);
+
+	/**
+	 * takes and removes up to max top elements in queue order and hands them
+	 * to the consumer. The consumer must not throw as the elements are already
+	 * claimed.
+	 *
+	 * @param consumer
+	 * @param max
+	 * @return amount of taken elements
+	 */
+	public int drainTo(Consumer<E> consumer, int max);
+
 	/**
 	 * @return top element without removing
 	 */
@@ -44,4 +70,4 @@ public interface Queue<E> {
 	 * clears the queue
 	 */
 	public void clear();
-}
\ No newline at end of file
+}
\ No newline at end of file
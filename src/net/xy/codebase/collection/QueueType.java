@@ -0,0 +1,65 @@
+package net.xy.codebase.collection;
+
+/**
+ * selectable queue implementations by producer and consumer concurrency
+ *
+ * @author Xyan
+ *
+ */
+public enum QueueType {
+	/**
+	 * default ringbuffer, any amount of producers and consumers
+	 */
+	ARRAY {
+		@Override
+		public <E> Queue<E> create(final Class<E> clazz, final int capacity) {
+			return new ArrayQueue<E>(clazz, capacity);
+		}
+	},
+	/**
+	 * masked sequence ringbuffer, any amount of producers and consumers
+	 */
+	MPMC {
+		@Override
+		public <E> Queue<E> create(final Class<E> clazz, final int capacity) {
+			return new MPMCArrayQueue<E>(clazz, capacity);
+		}
+	},
+	/**
+	 * any amount of producers, exactly one consumer thread
+	 */
+	MPSC {
+		@Override
+		public <E> Queue<E> create(final Class<E> clazz, final int capacity) {
+			return new MPSCArrayQueue<E>(clazz, capacity);
+		}
+	},
+	/**
+	 * exactly one producer and one consumer thread
+	 */
+	SPSC {
+		@Override
+		public <E> Queue<E> create(final Class<E> clazz, final int capacity) {
+			return new SPSCArrayQueue<E>(clazz, capacity);
+		}
+	},
+	/**
+	 * unbounded linked array segments up to capacity, any amount of
+	 * producers and consumers
+	 */
+	LINKED {
+		@Override
+		public <E> Queue<E> create(final Class<E> clazz, final int capacity) {
+			return new LinkedArrayQueue<E>(clazz, capacity);
+		}
+	};
+
+	/**
+	 * creates a new queue of this type
+	 *
+	 * @param clazz
+	 * @param capacity
+	 * @return
+	 */
+	public abstract <E> Queue<E> create(Class<E> clazz, int capacity);
+}
@@ -0,0 +1,209 @@
+package net.xy.codebase.collection;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+import net.xy.codebase.Primitive;
+import net.xy.codebase.concurrent.PaddedAtomicLong;
+
+/**
+ * bounded single producer single consumer ringbuffer. Works without any CAS,
+ * indices are published by ordered writes and each side caches the remote
+ * index until it runs into it. Only one thread may add and only one thread may
+ * take at the same time.
+ *
+ * @author Xyan
+ *
+ * @param <E>
+ */
+public class SPSCArrayQueue<E> implements Queue<E> {
+	/**
+	 * backing array container
+	 */
+	protected final AtomicReferenceArray<E> elements;
+	/**
+	 * capacity - 1 for index masking
+	 */
+	protected final int mask;
+	/**
+	 * next index to put next element in
+	 */
+	protected final PaddedAtomicLong putIndex = new PaddedAtomicLong();
+	/**
+	 * next index to retrieve object from
+	 */
+	protected final PaddedAtomicLong getIndex = new PaddedAtomicLong();
+	/**
+	 * producer local copy of the get index
+	 */
+	private long getIndexCache;
+	/**
+	 * consumer local copy of the put index
+	 */
+	private long putIndexCache;
+
+	/**
+	 * default
+	 *
+	 * @param clazz
+	 * @param capacity
+	 *            gets rounded up to the next power of two
+	 */
+	public SPSCArrayQueue(final Class<E> clazz, final int capacity) {
+		final int cap = Primitive.nextPowerOfTwo(Math.max(capacity, 2));
+		elements = new AtomicReferenceArray<E>(cap);
+		mask = cap - 1;
+	}
+
+	/**
+	 * adds an element as long as the maximum size is not reached, producer
+	 * thread only
+	 *
+	 * @param elem
+	 * @return true on success
+	 */
+	@Override
+	public boolean add(final E elem) {
+		if (elem == null)
+			throw new IllegalArgumentException("Null elements are not supported");
+		final long put = putIndex.get();
+		if (put - getIndexCache > mask) {
+			getIndexCache = getIndex.get();
+			if (put - getIndexCache > mask)
+				return false;
+		}
+		elements.lazySet((int) put & mask, elem);
+		putIndex.lazySet(put + 1);
+		return true;
+	}
+
+	/**
+	 * adds as many elements as fit and publishes them with one index update,
+	 * producer thread only
+	 *
+	 * @param elems
+	 * @param off
+	 * @param len
+	 * @return amount of added elements
+	 */
+	@Override
+	public int addAll(final E[] elems, final int off, final int len) {
+		for (int i = 0; i < len; i++)
+			if (elems[off + i] == null)
+				throw new IllegalArgumentException("Null elements are not supported");
+		final long put = putIndex.get();
+		long free = capacity() - (put - getIndexCache);
+		if (free < len) {
+			getIndexCache = getIndex.get();
+			free = capacity() - (put - getIndexCache);
+		}
+		final int amount = (int) Math.min(len, free);
+		if (amount <= 0)
+			return 0;
+		for (int i = 0; i < amount; i++)
+			elements.lazySet((int) (put + i) & mask, elems[off + i]);
+		putIndex.lazySet(put + amount);
+		return amount;
+	}
+
+	/**
+	 * takes up to max elements and releases their slots with one index
+	 * update, consumer thread only
+	 *
+	 * @param consumer
+	 * @param max
+	 * @return amount of taken elements
+	 */
+	@Override
+	public int drainTo(final Consumer<E> consumer, final int max) {
+		final long get = getIndex.get();
+		long avail = putIndexCache - get;
+		if (avail < max) {
+			putIndexCache = putIndex.get();
+			avail = putIndexCache - get;
+		}
+		final int amount = (int) Math.min(max, avail);
+		if (amount <= 0)
+			return 0;
+		for (int i = 0; i < amount; i++) {
+			final int idx = (int) (get + i) & mask;
+			final E res = elements.get(idx);
+			elements.lazySet(idx, null);
+			consumer.accept(res);
+		}
+		getIndex.lazySet(get + amount);
+		return amount;
+	}
+
+	/**
+	 * take and remove top element or return null, consumer thread only
+	 *
+	 * @return
+	 */
+	@Override
+	public E take() {
+		final long get = getIndex.get();
+		if (get >= putIndexCache) {
+			putIndexCache = putIndex.get();
+			if (get >= putIndexCache)
+				return null;
+		}
+		final int idx = (int) get & mask;
+		final E res = elements.get(idx);
+		elements.lazySet(idx, null);
+		getIndex.lazySet(get + 1);
+		return res;
+	}
+
+	/**
+	 * @return next element to take without removing
+	 */
+	@Override
+	public E peek() {
+		return elements.get((int) getIndex.get() & mask);
+	}
+
+	/**
+	 * @return amount of contained elements
+	 */
+	@Override
+	public int size() {
+		for (;;) {
+			final long get = getIndex.get();
+			final long put = putIndex.get();
+			if (get == getIndex.get())
+				return (int) Math.min(Math.max(put - get, 0), capacity());
+		}
+	}
+
+	/**
+	 * whether size == 0
+	 *
+	 * @return
+	 */
+	@Override
+	public boolean isEmpty() {
+		return getIndex.get() >= putIndex.get();
+	}
+
+	/**
+	 * @return maximum amount of elements
+	 */
+	public int capacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * clears the queue, consumer thread only
+	 */
+	@Override
+	public void clear() {
+		while (take() != null)
+			;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s [size=%s,capacity=%s]", getClass().getSimpleName(), size(), capacity());
+	}
+}
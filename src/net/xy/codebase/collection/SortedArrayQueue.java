@@ -2,6 +2,7 @@ package net.xy.codebase.collection;
 
 import java.util.Comparator;
 import java.util.Random;
+import java.util.function.Consumer;
 
 import net.xy.codebase.Primitive;
 
@@ -37,6 +38,16 @@ public class SortedArrayQueue<E> extends ArrayQueue<E> {
 		return super.add(elem);
 	}
 
+	@Override
+	public synchronized int addAll(final E[] elems, final int off, final int len) {
+		return super.addAll(elems, off, len);
+	}
+
+	@Override
+	public synchronized int drainTo(final Consumer<E> consumer, final int max) {
+		return super.drainTo(consumer, max);
+	}
+
 	@Override
 	public synchronized void clear() {
 		super.clear();
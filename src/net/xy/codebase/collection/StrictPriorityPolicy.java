@@ -0,0 +1,32 @@
+package net.xy.codebase.collection;
+
+/**
+ * always serves the highest non empty level, lower levels can starve
+ *
+ * @author Xyan
+ *
+ */
+public class StrictPriorityPolicy implements IPriorityPolicy {
+	/**
+	 * stateless shared instance
+	 */
+	public static final StrictPriorityPolicy INSTANCE = new StrictPriorityPolicy();
+
+	@Override
+	public int select(final long levels) {
+		return Long.numberOfTrailingZeros(levels);
+	}
+
+	@Override
+	public int quantum(final int level) {
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	public void served(final int level) {
+	}
+
+	@Override
+	public void activated(final int level) {
+	}
+}
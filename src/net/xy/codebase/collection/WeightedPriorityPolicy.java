@@ -0,0 +1,71 @@
+package net.xy.codebase.collection;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * weighted round robin over the levels. Each level gets its weight in slots of
+ * a precomputed and interleaved schedule, empty levels pass their slot to the
+ * highest non empty one.
+ *
+ * @author Xyan
+ *
+ */
+public class WeightedPriorityPolicy implements IPriorityPolicy {
+	/**
+	 * levels in serving order
+	 */
+	private final int[] schedule;
+	/**
+	 * position in schedule
+	 */
+	private final AtomicInteger ticket = new AtomicInteger();
+
+	/**
+	 * default
+	 *
+	 * @param weights
+	 *            per level, at least 1
+	 */
+	public WeightedPriorityPolicy(final int... weights) {
+		int total = 0;
+		for (final int weight : weights) {
+			if (weight < 1)
+				throw new IllegalArgumentException("Weight must be at least 1 [" + weight + "]");
+			total += weight;
+		}
+		schedule = new int[total];
+		// smooth weighted round robin to interleave the levels
+		final int[] current = new int[weights.length];
+		for (int s = 0; s < total; s++) {
+			int best = 0;
+			for (int i = 0; i < weights.length; i++) {
+				current[i] += weights[i];
+				if (current[i] > current[best])
+					best = i;
+			}
+			current[best] -= total;
+			schedule[s] = best;
+		}
+	}
+
+	@Override
+	public int select(final long levels) {
+		final int level = schedule[(ticket.getAndIncrement() & Integer.MAX_VALUE) % schedule.length];
+		if (level < Long.SIZE && (levels & 1L << level) != 0)
+			return level;
+		return Long.numberOfTrailingZeros(levels);
+	}
+
+	@Override
+	public int quantum(final int level) {
+		return 1;
+	}
+
+	@Override
+	public void served(final int level) {
+	}
+
+	@Override
+	public void activated(final int level) {
+	}
+}
@@ -0,0 +1,135 @@
+package net.xy.codebase.collection;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.xy.codebase.Primitive;
+import net.xy.codebase.concurrent.PaddedAtomicLong;
+
+/**
+ * unbounded Chase-Lev work stealing deque. The owner thread pushes and pops at
+ * the bottom without CAS except for the last element, any other thread steals
+ * from the top by CAS. The array grows on demand and never shrinks.
+ *
+ * @author Xyan
+ *
+ * @param <E>
+ */
+public class WorkStealingDeque<E> {
+	/**
+	 * next index to steal from
+	 */
+	private final PaddedAtomicLong top = new PaddedAtomicLong();
+	/**
+	 * next index to push to, only written by the owner
+	 */
+	private final PaddedAtomicLong bottom = new PaddedAtomicLong();
+	/**
+	 * backing ring, replaced on growth
+	 */
+	private volatile AtomicReferenceArray<E> elements;
+
+	/**
+	 * default
+	 *
+	 * @param capacity
+	 *            initial, gets rounded up to the next power of two
+	 */
+	public WorkStealingDeque(final int capacity) {
+		elements = new AtomicReferenceArray<E>(Primitive.nextPowerOfTwo(Math.max(capacity, 2)));
+	}
+
+	/**
+	 * adds an element at the bottom, owner thread only
+	 *
+	 * @param elem
+	 */
+	public void push(final E elem) {
+		final long b = bottom.get();
+		final long t = top.get();
+		AtomicReferenceArray<E> a = elements;
+		if (b - t >= a.length() - 1)
+			a = grow(a, b, t);
+		a.lazySet((int) b & a.length() - 1, elem);
+		bottom.lazySet(b + 1);
+	}
+
+	/**
+	 * takes the last pushed element, owner thread only
+	 *
+	 * @return null when empty or the last element got stolen
+	 */
+	public E pop() {
+		final long b = bottom.get() - 1;
+		final AtomicReferenceArray<E> a = elements;
+		// volatile write before reading top, races with steal on the last one
+		bottom.set(b);
+		final long t = top.get();
+		if (t > b) {
+			bottom.set(b + 1);
+			return null;
+		}
+		final int idx = (int) b & a.length() - 1;
+		E elem = a.get(idx);
+		if (t == b) {
+			if (!top.compareAndSet(t, t + 1))
+				elem = null;
+			bottom.set(b + 1);
+		} else
+			// no stealer can reach this slot anymore
+			a.lazySet(idx, null);
+		return elem;
+	}
+
+	/**
+	 * takes the oldest element, any thread
+	 *
+	 * @return null when empty
+	 */
+	public E steal() {
+		for (;;) {
+			final long t = top.get();
+			final long b = bottom.get();
+			if (t >= b)
+				return null;
+			final AtomicReferenceArray<E> a = elements;
+			final E elem = a.get((int) t & a.length() - 1);
+			if (top.compareAndSet(t, t + 1))
+				return elem;
+		}
+	}
+
+	/**
+	 * @param a
+	 * @param b
+	 * @param t
+	 * @return doubled array containing the elements between top and bottom
+	 */
+	private AtomicReferenceArray<E> grow(final AtomicReferenceArray<E> a, final long b, final long t) {
+		final AtomicReferenceArray<E> na = new AtomicReferenceArray<E>(a.length() << 1);
+		for (long i = t; i < b; i++)
+			na.lazySet((int) i & na.length() - 1, a.get((int) i & a.length() - 1));
+		elements = na;
+		return na;
+	}
+
+	/**
+	 * @return approximate amount of contained elements
+	 */
+	public int size() {
+		return (int) Math.max(bottom.get() - top.get(), 0);
+	}
+
+	/**
+	 * whether size == 0
+	 *
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("WorkStealingDeque [size=%s,capacity=%s]", size(), elements.length());
+	}
+}
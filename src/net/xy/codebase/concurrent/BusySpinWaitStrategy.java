@@ -0,0 +1,27 @@
+package net.xy.codebase.concurrent;
+
+import net.xy.codebase.exec.ThreadUtils;
+
+/**
+ * spins on the state without ever giving up the cpu, lowest latency but burns
+ * a whole core per waiting thread
+ *
+ * @author Xyan
+ *
+ */
+public class BusySpinWaitStrategy implements IWaitStrategy {
+	/**
+	 * stateless shared instance
+	 */
+	public static final BusySpinWaitStrategy INSTANCE = new BusySpinWaitStrategy();
+
+	@Override
+	public void await(final Sync sync, final int state, final long nanos) {
+		final long start = nanos > 0 ? System.nanoTime() : 0;
+		while (sync.getState() == state) {
+			if (nanos >= 0 && System.nanoTime() - start >= nanos)
+				return;
+			ThreadUtils.onSpinWait();
+		}
+	}
+}
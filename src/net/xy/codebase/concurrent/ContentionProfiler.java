@@ -0,0 +1,378 @@
+package net.xy.codebase.concurrent;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.xy.codebase.jmx.IJMXRegistry;
+
+/**
+ * opt in contention profiler for the queued locks and syncs. While disabled
+ * an profiled lock only pays an volatile read per acquire. While enabled each
+ * lock gets its statistics on first use, counting acquires, contended
+ * acquires, time spent waiting and its longest holds.
+ *
+ * @author Xyan
+ *
+ */
+public class ContentionProfiler implements ContentionProfilerMBean {
+	/**
+	 * shared instance used by all locks
+	 */
+	public static final ContentionProfiler INSTANCE = new ContentionProfiler();
+	/**
+	 * longest holds kept per lock
+	 */
+	private static final int TOP_HOLDS = 4;
+	/**
+	 * registrations after which collected locks get pruned
+	 */
+	private static final int PRUNE_INTERVAL = 1024;
+	/**
+	 * global switch, the only thing read while disabled
+	 */
+	private static volatile boolean active;
+	/**
+	 * statistics of all profiled locks
+	 */
+	private final ConcurrentLinkedQueue<LockStats> locks = new ConcurrentLinkedQueue<LockStats>();
+	/**
+	 * registrations since the last prune
+	 */
+	private final AtomicInteger registered = new AtomicInteger();
+	/**
+	 * optional names by lock
+	 */
+	private final Map<Object, String> names = new WeakHashMap<Object, String>();
+
+	/**
+	 * @return true while profiling, checked by locks before recording
+	 */
+	public static boolean isActive() {
+		return active;
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return active;
+	}
+
+	@Override
+	public void setEnabled(final boolean enabled) {
+		active = enabled;
+	}
+
+	/**
+	 * gives the lock an readable name in reports, otherwise class and identity
+	 * get used
+	 *
+	 * @param lock
+	 * @param name
+	 */
+	public void setName(final Object lock, final String name) {
+		synchronized (names) {
+			names.put(lock, name);
+		}
+	}
+
+	/**
+	 * exports this profiler
+	 *
+	 * @param jmx
+	 */
+	public void register(final IJMXRegistry jmx) {
+		jmx.register(this);
+	}
+
+	/**
+	 * creates the statistics of an lock, called once per lock
+	 *
+	 * @param lock
+	 * @return
+	 */
+	public LockStats register(final Object lock) {
+		String name;
+		synchronized (names) {
+			name = names.get(lock);
+		}
+		if (name == null)
+			name = lock.getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(lock));
+		final LockStats stats = new LockStats(lock, name);
+		locks.add(stats);
+		if (registered.incrementAndGet() % PRUNE_INTERVAL == 0)
+			prune();
+		return stats;
+	}
+
+	/**
+	 * drops statistics of collected locks
+	 */
+	private void prune() {
+		for (final Iterator<LockStats> it = locks.iterator(); it.hasNext();)
+			if (it.next().lock.get() == null)
+				it.remove();
+	}
+
+	@Override
+	public void reset() {
+		for (final LockStats stats : locks)
+			stats.reset();
+		prune();
+	}
+
+	@Override
+	public int getLockCount() {
+		return locks.size();
+	}
+
+	/**
+	 * @return live statistics, most waited time first
+	 */
+	public List<LockStats> getStats() {
+		prune();
+		final List<LockStats> res = new ArrayList<LockStats>(locks);
+		Collections.sort(res, (a, b) -> Long.compare(b.getWaitNanos(), a.getWaitNanos()));
+		return res;
+	}
+
+	@Override
+	public String[] getReport() {
+		final List<LockStats> stats = getStats();
+		final String[] res = new String[stats.size()];
+		for (int i = 0; i < res.length; i++)
+			res[i] = stats.get(i).toString();
+		return res;
+	}
+
+	@Override
+	public String[] getLongestHolders() {
+		final List<Hold> holds = new ArrayList<Hold>();
+		for (final LockStats stats : locks)
+			Collections.addAll(holds, stats.getLongestHolds());
+		Collections.sort(holds, (a, b) -> Long.compare(b.nanos, a.nanos));
+		final String[] res = new String[holds.size()];
+		for (int i = 0; i < res.length; i++)
+			res[i] = holds.get(i).toString();
+		return res;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ContentionProfiler [enabled=%s,locks=%s]", active, locks.size());
+	}
+
+	/**
+	 * statistics of one lock
+	 *
+	 * @author Xyan
+	 *
+	 */
+	public static class LockStats {
+		/**
+		 * profiled lock, weak to not keep it alive
+		 */
+		private final WeakReference<Object> lock;
+		private final String name;
+		private final LongAdder acquires = new LongAdder();
+		private final LongAdder contended = new LongAdder();
+		private final LongAdder waitNanos = new LongAdder();
+		private final AtomicLong maxWaitNanos = new AtomicLong();
+		/**
+		 * start of the current exclusive hold, only touched by the owner
+		 */
+		private long holdStart;
+		private boolean holding;
+		/**
+		 * longest holds, guarded by this
+		 */
+		private final Hold[] holds = new Hold[TOP_HOLDS];
+		/**
+		 * shortest kept hold, for skipping the lock on short holds
+		 */
+		private volatile long minHold;
+
+		public LockStats(final Object lock, final String name) {
+			this.lock = new WeakReference<Object>(lock);
+			this.name = name;
+		}
+
+		/**
+		 * an uncontended acquire
+		 */
+		public void acquired() {
+			acquires.increment();
+		}
+
+		/**
+		 * an acquire after waiting
+		 *
+		 * @param waitStart
+		 *            nanotime the wait began
+		 */
+		public void acquired(final long waitStart) {
+			acquires.increment();
+			final long waited = System.nanoTime() - waitStart;
+			contended.increment();
+			waitNanos.add(waited);
+			for (;;) {
+				final long max = maxWaitNanos.get();
+				if (waited <= max || maxWaitNanos.compareAndSet(max, waited))
+					break;
+			}
+		}
+
+		/**
+		 * an exclusive hold begins, reentrant acquires keep the first start
+		 */
+		public void hold() {
+			if (!holding) {
+				holding = true;
+				holdStart = System.nanoTime();
+			}
+		}
+
+		/**
+		 * @return whether an exclusive hold is tracked, only valid for the
+		 *         owner
+		 */
+		public boolean isHolding() {
+			return holding;
+		}
+
+		/**
+		 * the owner is about to release, must happen before freeing the lock
+		 *
+		 * @return start of the hold
+		 */
+		public long unhold() {
+			holding = false;
+			return holdStart;
+		}
+
+		/**
+		 * the release did not free the lock, the hold continues
+		 *
+		 * @param start
+		 */
+		public void rehold(final long start) {
+			holdStart = start;
+			holding = true;
+		}
+
+		/**
+		 * records the ended hold
+		 *
+		 * @param start
+		 */
+		public void held(final long start) {
+			final long held = System.nanoTime() - start;
+			if (held <= minHold)
+				return;
+			synchronized (this) {
+				int min = 0;
+				for (int i = 1; i < holds.length; i++)
+					if (holds[i] == null || holds[min] != null && holds[i].nanos < holds[min].nanos)
+						min = i;
+				if (holds[min] != null && holds[min].nanos >= held)
+					return;
+				holds[min] = new Hold(name, Thread.currentThread().getName(), held);
+				long low = Long.MAX_VALUE;
+				for (final Hold hd : holds)
+					low = hd == null ? 0 : Math.min(low, hd.nanos);
+				minHold = low;
+			}
+		}
+
+		/**
+		 * clears all counters
+		 */
+		public synchronized void reset() {
+			acquires.reset();
+			contended.reset();
+			waitNanos.reset();
+			maxWaitNanos.set(0);
+			for (int i = 0; i < holds.length; i++)
+				holds[i] = null;
+			minHold = 0;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getAcquires() {
+			return acquires.sum();
+		}
+
+		public long getContended() {
+			return contended.sum();
+		}
+
+		public long getWaitNanos() {
+			return waitNanos.sum();
+		}
+
+		public long getMaxWaitNanos() {
+			return maxWaitNanos.get();
+		}
+
+		/**
+		 * @return longest holds, longest first
+		 */
+		public synchronized Hold[] getLongestHolds() {
+			final List<Hold> res = new ArrayList<Hold>(holds.length);
+			for (final Hold hd : holds)
+				if (hd != null)
+					res.add(hd);
+			Collections.sort(res, (a, b) -> Long.compare(b.nanos, a.nanos));
+			return res.toArray(new Hold[res.size()]);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s [acquires=%s,contended=%s,waitMs=%s,maxWaitMs=%s]", name, getAcquires(),
+					getContended(), TimeUnit.NANOSECONDS.toMillis(getWaitNanos()),
+					TimeUnit.NANOSECONDS.toMillis(getMaxWaitNanos()));
+		}
+	}
+
+	/**
+	 * one recorded hold
+	 *
+	 * @author Xyan
+	 *
+	 */
+	public static class Hold {
+		private final String lock;
+		private final String thread;
+		private final long nanos;
+
+		public Hold(final String lock, final String thread, final long nanos) {
+			this.lock = lock;
+			this.thread = thread;
+			this.nanos = nanos;
+		}
+
+		public String getThread() {
+			return thread;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s [thread=%s,heldMs=%s]", lock, thread, TimeUnit.NANOSECONDS.toMillis(nanos));
+		}
+	}
+}
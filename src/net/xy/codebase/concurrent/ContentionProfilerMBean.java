@@ -0,0 +1,34 @@
+package net.xy.codebase.concurrent;
+
+/**
+ * jmx view of the contention profiler
+ *
+ * @author Xyan
+ *
+ */
+public interface ContentionProfilerMBean {
+
+	public boolean isEnabled();
+
+	public void setEnabled(boolean enabled);
+
+	/**
+	 * drops all collected statistics
+	 */
+	public void reset();
+
+	/**
+	 * @return amount of profiled locks
+	 */
+	public int getLockCount();
+
+	/**
+	 * @return statistics per lock, most waited time first
+	 */
+	public String[] getReport();
+
+	/**
+	 * @return longest holds over all locks
+	 */
+	public String[] getLongestHolders();
+}
@@ -0,0 +1,204 @@
+package net.xy.codebase.concurrent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import net.xy.codebase.exec.ThreadUtils;
+
+/**
+ * flat combining guard for an non thread safe structure. Threads publish their
+ * operation in an per thread record and whoever gets the combiner lock applies
+ * all published operations in one pass, so under contention N lock handoffs
+ * become one and the structure stays hot in the combiners cache. Records of
+ * threads not operating for a while get unlinked by the combiner and relinked
+ * by their owner on next use.
+ *
+ * @author Xyan
+ *
+ * @param <T>
+ *            guarded structure
+ */
+public class FlatCombiner<T> {
+	/**
+	 * spins on the own record before yielding
+	 */
+	private static final int SPINS = 64;
+	/**
+	 * maximum scans of the record list per combining turn
+	 */
+	private static final int MAX_PASSES = 4;
+	/**
+	 * combining turns a record may stay idle before getting unlinked
+	 */
+	private static final int MAX_AGE = 1024;
+	/**
+	 * guarded structure, only touched by the combiner
+	 */
+	private final T target;
+	/**
+	 * combiner lock, 1 while held
+	 */
+	private final AtomicInteger lock = new AtomicInteger();
+	/**
+	 * publication list, pushed by owners and unlinked by the combiner
+	 */
+	private final AtomicReference<Record> head = new AtomicReference<Record>();
+	/**
+	 * per thread record of this combiner
+	 */
+	private final ThreadLocal<Record> records = ThreadLocal.withInitial(Record::new);
+	/**
+	 * combining turns, only written by the combiner
+	 */
+	private int turn;
+
+	/**
+	 * default
+	 *
+	 * @param target
+	 */
+	public FlatCombiner(final T target) {
+		this.target = target;
+	}
+
+	/**
+	 * applies the operation exclusively to the structure, either by this
+	 * thread or by the current combiner
+	 *
+	 * @param op
+	 *            must not block or use this combiner again
+	 * @return result of the operation
+	 */
+	@SuppressWarnings("unchecked")
+	public <R> R apply(final Function<? super T, R> op) {
+		final Record rec = records.get();
+		rec.op = op;
+		if (!rec.linked) {
+			rec.linked = true;
+			push(rec);
+		}
+		int loop = 0;
+		for (;;) {
+			if (rec.op == null)
+				break;
+			if (lock.get() == 0 && lock.compareAndSet(0, 1)) {
+				try {
+					combine();
+				} finally {
+					lock.set(0);
+				}
+				if (rec.op == null)
+					break;
+			} else if (loop++ < SPINS)
+				ThreadUtils.onSpinWait();
+			else
+				Thread.yield();
+		}
+		final Object res = rec.result;
+		final Throwable error = rec.error;
+		rec.result = null;
+		rec.error = null;
+		if (error instanceof RuntimeException)
+			throw (RuntimeException) error;
+		if (error instanceof Error)
+			throw (Error) error;
+		return (R) res;
+	}
+
+	/**
+	 * @return guarded structure, only safe to use inside operations
+	 */
+	public T getTarget() {
+		return target;
+	}
+
+	/**
+	 * @param rec
+	 */
+	private void push(final Record rec) {
+		for (;;) {
+			final Record h = head.get();
+			rec.next = h;
+			if (head.compareAndSet(h, rec))
+				break;
+		}
+	}
+
+	/**
+	 * applies all published operations, called under lock
+	 */
+	private void combine() {
+		final int now = ++turn;
+		for (int pass = 0; pass < MAX_PASSES; pass++) {
+			boolean applied = false;
+			Record prev = null;
+			for (Record rec = head.get(); rec != null;) {
+				final Record next = rec.next;
+				if (rec.op != null) {
+					execute(rec);
+					rec.age = now;
+					applied = true;
+				} else if (prev != null && now - rec.age > MAX_AGE) {
+					// head stays, only owners push there
+					prev.next = next;
+					rec.linked = false;
+					// published meanwhile but seen the link still set
+					if (rec.op != null)
+						execute(rec);
+					rec = next;
+					continue;
+				}
+				prev = rec;
+				rec = next;
+			}
+			if (!applied)
+				break;
+		}
+	}
+
+	/**
+	 * runs the operation and hands over the result
+	 *
+	 * @param rec
+	 */
+	@SuppressWarnings("unchecked")
+	private void execute(final Record rec) {
+		try {
+			rec.result = ((Function<? super T, ?>) rec.op).apply(target);
+		} catch (final RuntimeException | Error e) {
+			rec.error = e;
+		}
+		// volatile write publishes result to the owner
+		rec.op = null;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("FlatCombiner [turn=%s,locked=%s,%s]", turn, lock.get() != 0, target);
+	}
+
+	/**
+	 * publication record of an thread
+	 *
+	 * @author Xyan
+	 *
+	 */
+	private static class Record {
+		/**
+		 * pending operation, null when done
+		 */
+		private volatile Function<?, ?> op;
+		/**
+		 * whether in the publication list, cleared by the combiner on unlink
+		 */
+		private volatile boolean linked;
+		private Object result;
+		private Throwable error;
+		/**
+		 * combining turn of the last operation
+		 */
+		private int age;
+		private volatile Record next;
+	}
+}
@@ -0,0 +1,20 @@
+package net.xy.codebase.concurrent;
+
+/**
+ * strategy how a thread waits for a state change of a sync
+ *
+ * @author Xyan
+ *
+ */
+public interface IWaitStrategy {
+	/**
+	 * waits until the syncs state differs from state or the time elapsed
+	 *
+	 * @param sync
+	 * @param state
+	 *            state seen before the wait condition was checked
+	 * @param nanos
+	 *            maximum time to wait, negative for endless
+	 */
+	public void await(Sync sync, int state, long nanos);
+}
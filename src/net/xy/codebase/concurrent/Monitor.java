@@ -1,7 +1,7 @@
 package net.xy.codebase.concurrent;
 
 /**
- * 1. dynamic slot creation and growth<br>
+ * 1. per thread reused slots in an lock free queue<br>
  * 2. thread data only hold on stack <br>
  * 3. ordered wait and wake, clear every wake permit <br>
  * 4. atomic enqueue/dequeue operations <br>
@@ -18,6 +18,6 @@ public class Monitor extends Sync {
 	@Override
 	public void call() {
 		modCounter.incrementAndGet();
-		wakeAll(tail.get());
+		wakeAll();
 	}
 }
@@ -0,0 +1,42 @@
+package net.xy.codebase.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * atomic long padded to a full cache line to prevent false sharing between
+ * heavily written neighbouring counters like queue head and tail.
+ *
+ * @author Xyan
+ *
+ */
+public class PaddedAtomicLong extends AtomicLong {
+	private static final long serialVersionUID = -3415778863941386253L;
+	/**
+	 * padding following the value, 7 * 8 byte + value fill up 64 byte
+	 */
+	public volatile long p1, p2, p3, p4, p5, p6, p7 = 7L;
+
+	/**
+	 * default
+	 */
+	public PaddedAtomicLong() {
+	}
+
+	/**
+	 * with initial value
+	 *
+	 * @param initialValue
+	 */
+	public PaddedAtomicLong(final long initialValue) {
+		super(initialValue);
+	}
+
+	/**
+	 * prevents the padding from getting optimized away
+	 *
+	 * @return
+	 */
+	public long sumPaddingToPreventOptimisation() {
+		return p1 + p2 + p3 + p4 + p5 + p6 + p7;
+	}
+}
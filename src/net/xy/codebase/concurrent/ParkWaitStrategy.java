@@ -0,0 +1,19 @@
+package net.xy.codebase.concurrent;
+
+/**
+ * parks the thread right away, the default and the cheapest on cpu
+ *
+ * @author Xyan
+ *
+ */
+public class ParkWaitStrategy implements IWaitStrategy {
+	/**
+	 * stateless shared instance
+	 */
+	public static final ParkWaitStrategy INSTANCE = new ParkWaitStrategy();
+
+	@Override
+	public void await(final Sync sync, final int state, final long nanos) {
+		sync.park(state, nanos);
+	}
+}
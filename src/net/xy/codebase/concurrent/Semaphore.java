@@ -16,11 +16,11 @@ public class Semaphore extends Sync {
 	@Override
 	public void call() {
 		modCounter.incrementAndGet();
-		wakeNext(tail.get());
+		wakeNext();
 	}
 
 	public void callAll() {
 		modCounter.incrementAndGet();
-		wakeAll(tail.get());
+		wakeAll();
 	}
 }
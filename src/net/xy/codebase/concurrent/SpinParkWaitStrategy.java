@@ -0,0 +1,55 @@
+package net.xy.codebase.concurrent;
+
+import net.xy.codebase.exec.ThreadUtils;
+
+/**
+ * spins, yields and parks at last. Short waits avoid the park and unpark round
+ * trip while long waits still free the cpu.
+ *
+ * @author Xyan
+ *
+ */
+public class SpinParkWaitStrategy implements IWaitStrategy {
+	/**
+	 * iterations to spin before yielding
+	 */
+	private final int spins;
+	/**
+	 * yields before parking
+	 */
+	private final int yields;
+
+	/**
+	 * default
+	 *
+	 * @param spins
+	 * @param yields
+	 */
+	public SpinParkWaitStrategy(final int spins, final int yields) {
+		this.spins = spins;
+		this.yields = yields;
+	}
+
+	@Override
+	public void await(final Sync sync, final int state, final long nanos) {
+		final long start = nanos > 0 ? System.nanoTime() : 0;
+		for (int i = 0; sync.getState() == state; i++) {
+			long left = -1;
+			if (nanos >= 0 && (left = nanos - (System.nanoTime() - start)) <= 0)
+				return;
+			if (i < spins)
+				ThreadUtils.onSpinWait();
+			else if (i < spins + yields)
+				Thread.yield();
+			else {
+				sync.park(state, left);
+				return;
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("SpinParkWaitStrategy [spins=%s,yields=%s]", spins, yields);
+	}
+}
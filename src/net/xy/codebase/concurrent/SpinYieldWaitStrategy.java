@@ -0,0 +1,43 @@
+package net.xy.codebase.concurrent;
+
+import net.xy.codebase.exec.ThreadUtils;
+
+/**
+ * spins a given amount of iterations and yields afterwards, never parks
+ *
+ * @author Xyan
+ *
+ */
+public class SpinYieldWaitStrategy implements IWaitStrategy {
+	/**
+	 * iterations to spin before yielding
+	 */
+	private final int spins;
+
+	/**
+	 * default
+	 *
+	 * @param spins
+	 */
+	public SpinYieldWaitStrategy(final int spins) {
+		this.spins = spins;
+	}
+
+	@Override
+	public void await(final Sync sync, final int state, final long nanos) {
+		final long start = nanos > 0 ? System.nanoTime() : 0;
+		for (int i = 0; sync.getState() == state; i++) {
+			if (nanos >= 0 && System.nanoTime() - start >= nanos)
+				return;
+			if (i < spins)
+				ThreadUtils.onSpinWait();
+			else
+				Thread.yield();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("SpinYieldWaitStrategy [spins=%s]", spins);
+	}
+}
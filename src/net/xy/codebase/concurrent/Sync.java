@@ -1,26 +1,42 @@
 package net.xy.codebase.concurrent;
 
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.LockSupport;
 
-import net.xy.codebase.exec.ThreadUtils;
+import net.xy.codebase.collection.LinkedArrayQueue;
+import net.xy.codebase.concurrent.ContentionProfiler.LockStats;
 
 /**
- * common implementation details for CAS Monitor and Semaphore
+ * common implementation details for CAS Monitor and Semaphore. Waiting threads
+ * queue their reused slot in an lock free queue, wakers take from its head in
+ * O(1) and skip everything when nobody waits. Timed out slots stay queued as
+ * cancelled and get dropped by the next waker or by an cleanup once there are
+ * too many.
  *
  * @author Xyan
  *
  */
 public abstract class Sync {
 	/**
-	 * bitmask to preserve max and min integer as special values
+	 * slot states, QUEUED is an flag set while the slot is in an wait queue
 	 */
-	private static int BITMASK = 1073741823;
+	private static final int IDLE = 0, WAITING = 1, CANCELLED = 2, WOKEN = 3, QUEUED = 4;
 	/**
-	 * last queued tail node
+	 * cancelled slots tolerated above the amount of waiters before cleanup
 	 */
-	protected final AtomicReference<Slot> tail = new AtomicReference<Slot>();
+	private static final int CLEANUP_SLACK = 64;
+	/**
+	 * per thread reused slot
+	 */
+	private static final ThreadLocal<Slot> SLOTS = ThreadLocal.withInitial(() -> new Slot(Thread.currentThread()));
+	/**
+	 * waiting slots in arrival order, cancelled ones get dropped lazily
+	 */
+	private final LinkedArrayQueue<Slot> waiting = new LinkedArrayQueue<Slot>(Slot.class, Integer.MAX_VALUE);
+	/**
+	 * cancelled slots still in the queue
+	 */
+	private final AtomicInteger cancelled = new AtomicInteger();
 	/**
 	 * amount of entered waiters
 	 */
@@ -29,6 +45,14 @@ public abstract class Sync {
 	 * current modification counter
 	 */
 	protected final AtomicInteger modCounter = new AtomicInteger();
+	/**
+	 * how waiting threads pass the time
+	 */
+	private volatile IWaitStrategy waitStrategy = ParkWaitStrategy.INSTANCE;
+	/**
+	 * contention statistics, created on the first wait while profiling
+	 */
+	private volatile LockStats stats;
 
 	/**
 	 * waits until state change
@@ -47,77 +71,141 @@ public abstract class Sync {
 	 */
 	public void await(final int state, final long nanoTime) {
 		waiters.incrementAndGet();
-		awaitInner(state, nanoTime);
+		if (ContentionProfiler.isActive())
+			profiledAwait(state, nanoTime);
+		else
+			waitStrategy.await(this, state, nanoTime);
 		waiters.decrementAndGet();
 	}
 
 	/**
-	 * inner stack context wait method
+	 * awaits and records, waits on an already changed state count as
+	 * uncontended
 	 *
 	 * @param state
-	 * @param nTime
-	 *            to wait in nanos
+	 * @param nanoTime
 	 */
-	private void awaitInner(final int state, final long nTime) {
-		final Thread th = Thread.currentThread();
-		final long sTime = System.nanoTime();
-		long wTime = 0; // waittime
+	private void profiledAwait(final int state, final long nanoTime) {
+		LockStats s = stats;
+		if (s == null)
+			synchronized (this) {
+				if ((s = stats) == null)
+					stats = s = ContentionProfiler.INSTANCE.register(this);
+			}
+		if (state != getState()) {
+			s.acquired();
+			return;
+		}
+		final long start = System.nanoTime();
+		waitStrategy.await(this, state, nanoTime);
+		s.acquired(start);
+	}
 
-		final Slot sl = enque(th);
-		for (;;) {
-			if (state != getState())
-				break;
-			if (nTime >= 0 && (wTime = nTime - (System.nanoTime() - sTime)) <= 0)
-				break;
+	/**
+	 * @return contention statistics or null if never waited while profiling
+	 */
+	public LockStats getContentionStats() {
+		return stats;
+	}
 
-			sl.setWaiting(state);
+	/**
+	 * sets how threads wait in await, default parks right away
+	 *
+	 * @param waitStrategy
+	 */
+	public void setWaitStrategy(final IWaitStrategy waitStrategy) {
+		this.waitStrategy = waitStrategy;
+	}
+
+	/**
+	 * @return current wait strategy
+	 */
+	public IWaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	/**
+	 * parks the thread until call or until reaching maximum wait time, the
+	 * final stage of wait strategies
+	 *
+	 * @param state
+	 * @param nTime
+	 *            to wait in nanos
+	 */
+	public void park(final int state, final long nTime) {
+		final long sTime = nTime > 0 ? System.nanoTime() : 0;
+		// queued before the state check so an concurrent call either sees
+		// the slot or we see its state change
+		Slot sl = enque();
+		while (state == getState()) {
+			if (!sl.isWaiting()) {
+				// woken by an cleanup or an stale entry, queue again and
+				// recheck the state before parking
+				sl = enque();
+				continue;
+			}
 			if (nTime < 0)
 				LockSupport.park(this);
 			else {
+				final long wTime = nTime - (System.nanoTime() - sTime);
+				if (wTime <= 0)
+					break;
 				LockSupport.parkNanos(this, wTime);
-				if (!sl.setRuning(state)) {
-					// i don't woke myself so i use the permit
-					LockSupport.unpark(th); // for safety add one
-					LockSupport.park(this);
-				}
 			}
 		}
-		dequeue(sl, th);
+		dequeue(sl);
 	}
 
 	/**
-	 * enques in next free slot up from tail or creates new slot
+	 * arms the threads slot, reuses it in place when it is still queued here
+	 * from an timed out wait
 	 *
-	 * @param th
 	 * @return
 	 */
-	private Slot enque(final Thread th) {
-		Slot nd = tail.get();
-		while (nd != null) {
-			if (nd.setThread(null, th))
-				return nd;
-			nd = nd.getNext();
-		}
-
-		nd = new Slot();
-		nd.setThread(null, th);
-		for (int loop = 0;;) {
-			final Slot old = tail.get();
-			nd.setNext(old);
-			if (tail.compareAndSet(old, nd))
-				return nd;
-			loop = ThreadUtils.yieldCAS(loop);
+	private Slot enque() {
+		Slot sl = SLOTS.get();
+		for (;;) {
+			final int st = sl.status.get();
+			if (st == (QUEUED | CANCELLED) && sl.owner == this) {
+				if (sl.status.compareAndSet(st, QUEUED | WAITING)) {
+					cancelled.decrementAndGet();
+					return sl;
+				}
+			} else if ((st & QUEUED) != 0) {
+				// left queued in an other sync
+				sl = new Slot(Thread.currentThread());
+				SLOTS.set(sl);
+			} else {
+				sl.owner = this;
+				sl.status.set(QUEUED | WAITING);
+				waiting.add(sl);
+				return sl;
+			}
 		}
 	}
 
 	/**
-	 * removes from current slot and returns
+	 * leaves the wait, the slot stays queued as cancelled and gets dropped by
+	 * the next waker or cleanup
 	 *
 	 * @param sl
-	 * @param th
 	 */
-	protected void dequeue(final Slot sl, final Thread th) {
-		sl.setThread(th, null);
+	private void dequeue(final Slot sl) {
+		if (sl.cancel() && cancelled.incrementAndGet() > waiters.get() + CLEANUP_SLACK)
+			cleanup();
+	}
+
+	/**
+	 * drops cancelled slots, live ones get woken and queue themselves again
+	 */
+	private void cleanup() {
+		for (int i = waiting.size(); i > 0; i--) {
+			final Slot sl = waiting.take();
+			if (sl == null)
+				break;
+			if (!sl.wake())
+				cancelled.decrementAndGet();
+		}
 	}
 
 	/**
@@ -142,106 +230,91 @@ public abstract class Sync {
 	public abstract void call();
 
 	/**
-	 * wakes up first found thread starting at the given node
+	 * wakes up the longest waiting thread, cancelled slots on the way get
+	 * dropped
 	 *
-	 * @param nd
-	 * @return
+	 * @return true on waking an thread
 	 */
-	protected boolean wakeNext(Slot nd) {
-		while (nd != null) {
-			if (nd.wake())
+	protected boolean wakeNext() {
+		if (waiters.get() == 0)
+			return false;
+		Slot sl;
+		while ((sl = waiting.take()) != null) {
+			if (sl.wake())
 				return true;
-			nd = nd.getNext();
+			cancelled.decrementAndGet();
 		}
 		return false;
 	}
 
 	/**
-	 * wakes up all following waiting threads
-	 *
-	 * @param nd
-	 * @return
+	 * wakes up all waiting threads
 	 */
-	protected void wakeAll(Slot nd) {
-		if (nd != null)
-			for (; nd != null; nd = nd.getNext())
-				nd.wake();
+	protected void wakeAll() {
+		if (waiters.get() == 0)
+			return;
+		Slot sl;
+		while ((sl = waiting.take()) != null)
+			if (!sl.wake())
+				cancelled.decrementAndGet();
 	}
 
 	/**
-	 * dynamic queue but consistent order node object to hold waiting threads
+	 * waiting slot of an thread, reused for all its waits as long as it isn't
+	 * left queued elsewhere
 	 *
 	 * @author Xyan
 	 *
 	 */
-	public static class Slot {
+	private static class Slot {
 		/**
-		 * thread to wake and atomic barrier to indicate waiting state
+		 * thread to wake
 		 */
-		private final AtomicReference<Thread> thread = new AtomicReference<Thread>();
+		private final Thread thread;
 		/**
-		 * threads waiting state
+		 * wait state and queued bit
 		 */
-		private final AtomicInteger waiting = new AtomicInteger();
+		private final AtomicInteger status = new AtomicInteger(IDLE);
 		/**
-		 * next bound node in slot chain
+		 * sync the slot was last queued in
 		 */
-		private Slot next;
+		private volatile Sync owner;
 
-		/**
-		 * thread can be waked once it doesn't matters if one thread got an
-		 * stale node
-		 *
-		 * @return true when a thread was waked up
-		 */
-		public boolean wake() {
-			final int state = waiting.get();
-			final boolean res = state != Integer.MIN_VALUE && setRuning(state);
-			if (res)
-				LockSupport.unpark(thread.get());
-			return res;
+		public Slot(final Thread thread) {
+			this.thread = thread;
 		}
 
 		/**
-		 * set waiting state to true
-		 *
-		 * @param state
+		 * @return true while not woken or cancelled
 		 */
-		public void setWaiting(final int state) {
-			final int shiftstate = state % BITMASK;
-			waiting.set(shiftstate);
-		}
-
-		public boolean setRuning(final int state) {
-			final int shiftstate = state % BITMASK;
-			return waiting.compareAndSet(shiftstate, Integer.MIN_VALUE);
+		public boolean isWaiting() {
+			return (status.get() & ~QUEUED) == WAITING;
 		}
 
 		/**
-		 * atomicly set thread of this slot
+		 * called after taking the slot out of the queue
 		 *
-		 * @param exspect
-		 * @param update
-		 * @return
-		 */
-		public boolean setThread(final Thread exspect, final Thread update) {
-			return thread.compareAndSet(exspect, update);
-		}
-
-		/**
-		 * @return next node in chain
+		 * @return true when a thread was waked up, false when the slot was
+		 *         cancelled
 		 */
-		public Slot getNext() {
-			return next;
+		public boolean wake() {
+			for (;;) {
+				final int st = status.get();
+				if (st == (QUEUED | WAITING)) {
+					if (status.compareAndSet(st, WOKEN)) {
+						LockSupport.unpark(thread);
+						return true;
+					}
+				} else if (status.compareAndSet(st, st & ~QUEUED))
+					return false;
+			}
 		}
 
 		/**
-		 * sets next slot in chain
-		 *
-		 * @param next
+		 * @return true when cancelled, false when woken before
 		 */
-		public void setNext(final Slot next) {
-			this.next = next;
+		public boolean cancel() {
+			return status.compareAndSet(QUEUED | WAITING, QUEUED | CANCELLED);
 		}
 	}
 }
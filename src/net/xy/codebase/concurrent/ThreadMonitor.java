@@ -1,20 +1,81 @@
 package net.xy.codebase.concurrent;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import net.xy.codebase.exec.ThreadUtils;
 
 /**
- * lock independent monitor build on CAS, uses spinlocks for blocking and waits
+ * lock independent monitor build on CAS, uses spinlocks for blocking and waits.
+ * In adaptive mode waiters spin for the given budget and park afterwards, they
+ * get signaled by release and by leaves while locked. Uncontended enter and
+ * leave stay a single CAS in both modes.
  *
  * @author Xyan
  *
  */
 public class ThreadMonitor {
+	/**
+	 * default spin budget for adaptive monitors
+	 */
+	public static final int DEFAULT_SPINS = 64;
+	/**
+	 * maximum park time when waiting on an other monitor, its changes don't
+	 * signal this one
+	 */
+	private static final long PARK_SLICE = TimeUnit.MICROSECONDS.toNanos(200);
+	/**
+	 * count marker for waiting until released
+	 */
+	private static final int UNLOCKED = -1;
 	/**
 	 * amount of threads in object active, -N - 1 is marker for locked state
 	 */
 	protected AtomicInteger enterCount = new AtomicInteger();
+	/**
+	 * parked waiters, null for spinning only
+	 */
+	private final Semaphore wake;
+	/**
+	 * spins before parking
+	 */
+	private volatile int spins;
+
+	/**
+	 * default spinning only
+	 */
+	public ThreadMonitor() {
+		wake = null;
+	}
+
+	/**
+	 * adaptive, spins up to the budget and parks afterwards
+	 *
+	 * @param spins
+	 */
+	public ThreadMonitor(final int spins) {
+		wake = new Semaphore();
+		this.spins = spins;
+	}
+
+	/**
+	 * @param spins
+	 *            before parking, only used in adaptive mode
+	 */
+	public void setSpins(final int spins) {
+		this.spins = spins;
+	}
+
+	public int getSpins() {
+		return spins;
+	}
+
+	/**
+	 * @return true when waiters get parked
+	 */
+	public boolean isAdaptive() {
+		return wake != null;
+	}
 
 	/**
 	 * an thread enters to the monitor range
@@ -25,7 +86,7 @@ public class ThreadMonitor {
 			final int entered = enterCount.get();
 			if (entered >= 0 && enterCount.compareAndSet(entered, entered + 1))
 				break;
-			loop = ThreadUtils.yieldCAS(loop);
+			loop = pause(loop, UNLOCKED, null, -1);
 		}
 	}
 
@@ -42,9 +103,10 @@ public class ThreadMonitor {
 			if (entered >= 0 && enterCount.compareAndSet(entered, entered + 1))
 				break;
 
-			if (waitTime >= 0 && System.nanoTime() - start >= waitTime)
+			final long left = waitTime - (System.nanoTime() - start);
+			if (waitTime >= 0 && left <= 0)
 				return false;
-			loop = ThreadUtils.yieldCAS(loop);
+			loop = pause(loop, UNLOCKED, null, waitTime >= 0 ? left : -1);
 		}
 		return true;
 	}
@@ -59,9 +121,12 @@ public class ThreadMonitor {
 				break;
 			else if (entered == -1)
 				throw new IllegalStateException("Leave but not entered ?");
-			else if (entered < 0 && enterCount.compareAndSet(entered, entered + 1))
+			else if (entered < 0 && enterCount.compareAndSet(entered, entered + 1)) {
+				// the locker waits for the count
+				signal();
 				break;
-			Thread.yield();
+			}
+			retry();
 		}
 	}
 
@@ -87,7 +152,7 @@ public class ThreadMonitor {
 				throw new IllegalMonitorStateException("Already locked [" + enterCount.get() + "]");
 			if (enterCount.compareAndSet(entered, -entered - 1))
 				break;
-			Thread.yield();
+			retry();
 		}
 	}
 
@@ -110,7 +175,7 @@ public class ThreadMonitor {
 			final int count = thc.count();
 			if (enterCount.compareAndSet(-count - 1, -count - 1))
 				break;
-			loop = ThreadUtils.yieldCAS(loop);
+			loop = pause(loop, 0, thc, -1);
 		}
 	}
 
@@ -136,7 +201,7 @@ public class ThreadMonitor {
 				throw new IllegalMonitorStateException("Not locked [" + enterCount.get() + "]");
 			if (enterCount.compareAndSet(-count - 1, -count - 1))
 				break;
-			loop = ThreadUtils.yieldCAS(loop);
+			loop = pause(loop, count, null, -1);
 		}
 	}
 
@@ -150,7 +215,69 @@ public class ThreadMonitor {
 				throw new IllegalMonitorStateException("Not locked [" + enterCount.get() + "]");
 			if (enterCount.compareAndSet(entered, -entered - 1))
 				break;
+			retry();
+		}
+		signal();
+	}
+
+	/**
+	 * backs off an failed CAS, no one gets waited for here
+	 */
+	private void retry() {
+		if (wake == null)
 			Thread.yield();
+		else
+			ThreadUtils.onSpinWait();
+	}
+
+	/**
+	 * wakes all parked waiters, done unconditionally as an waiter may be just
+	 * about to park
+	 */
+	private void signal() {
+		if (wake != null)
+			wake.callAll();
+	}
+
+	/**
+	 * spins or parks one round of an wait
+	 *
+	 * @param loop
+	 * @param count
+	 *            awaited threads inside or UNLOCKED
+	 * @param thc
+	 *            monitor giving the count or null
+	 * @param nanos
+	 *            maximum park time, -1 for none
+	 * @return next loop
+	 */
+	private int pause(final int loop, final int count, final ThreadMonitor thc, final long nanos) {
+		if (wake == null)
+			return ThreadUtils.yieldCAS(loop);
+		if (loop < spins) {
+			ThreadUtils.onSpinWait();
+			return loop + 1;
+		}
+		// state taken before the recheck so an signal in between is not lost
+		final int state = wake.getState();
+		if (!ready(count, thc)) {
+			long wait = nanos;
+			if (thc != null)
+				wait = wait < 0 ? PARK_SLICE : Math.min(wait, PARK_SLICE);
+			wake.await(state, wait);
 		}
+		return loop;
+	}
+
+	/**
+	 * @param count
+	 * @param thc
+	 * @return whether the waited state is reached
+	 */
+	private boolean ready(final int count, final ThreadMonitor thc) {
+		final int entered = enterCount.get();
+		if (count == UNLOCKED && thc == null)
+			return entered >= 0;
+		return entered == -(thc != null ? thc.count() : count) - 1;
 	}
 }
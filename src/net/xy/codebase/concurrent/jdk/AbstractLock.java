@@ -5,6 +5,8 @@ import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 
+import net.xy.codebase.concurrent.ContentionProfiler;
+
 /**
  * Base of synchronization control for this lock. Subclassed into fair and
  * nonfair versions below. Uses AQS state to represent the number of holds on
@@ -60,11 +62,6 @@ public abstract class AbstractLock extends AbstractQueuedLock implements Lock {
 	 *            {@link #tryAcquire} but is otherwise uninterpreted and can
 	 *            represent anything you like.
 	 */
-	public void acquire(final int arg) {
-		if (!tryAcquire(arg) && acquireQueued(addWaiter(Node.EXCLUSIVE), arg))
-			Thread.currentThread().interrupt();
-	}
-
 	public boolean isHeldByCurrentThread() {
 		// While we must in general read state before owner,
 		// we don't need to do so to check if current thread is owner
@@ -83,7 +80,11 @@ public abstract class AbstractLock extends AbstractQueuedLock implements Lock {
 
 	@Override
 	public boolean tryLock() {
-		return nonfairTryAcquire(1);
+		if (!nonfairTryAcquire(1))
+			return false;
+		if (ContentionProfiler.isActive())
+			profileAcquired(true);
+		return true;
 	}
 
 	@Override
@@ -304,4 +305,4 @@ public abstract class AbstractLock extends AbstractQueuedLock implements Lock {
 		final String q = hasQueuedThreads() ? "non" : "";
 		return super.toString() + "[State = " + s + ", " + q + "empty queue]";
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
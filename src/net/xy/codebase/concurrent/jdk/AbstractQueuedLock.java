@@ -23,6 +23,9 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.LockSupport;
 
+import net.xy.codebase.concurrent.ContentionProfiler;
+import net.xy.codebase.concurrent.ContentionProfiler.LockStats;
+
 public abstract class AbstractQueuedLock extends AbstractOwnableLock {
 	/**
 	 * The number of nanoseconds for which it is faster to spin rather than to
@@ -45,6 +48,10 @@ public abstract class AbstractQueuedLock extends AbstractOwnableLock {
 	 * The synchronization state.
 	 */
 	private final AtomicInteger locks = new AtomicInteger();
+	/**
+	 * Contention statistics, created on the first acquire while profiling.
+	 */
+	private volatile LockStats stats;
 
 	/**
 	 * Returns the current value of synchronization state. This operation has
@@ -134,7 +141,7 @@ public abstract class AbstractQueuedLock extends AbstractOwnableLock {
 	 */
 	protected Node addWaiter(final Node mode) {
 		final Node node = createNode(Thread.currentThread(), 0);
-		node.setNextWaiter(mode);
+		node.nextWaiter = mode;
 		// Try the fast path of enq; backup to full enq on failure
 		final Node pred = tail.get();
 		if (pred != null) {
@@ -162,6 +169,56 @@ public abstract class AbstractQueuedLock extends AbstractOwnableLock {
 		node.setPrev(null);
 	}
 
+	/**
+	 * Sets head of queue, and checks if successor may be waiting in shared
+	 * mode, if so propagating if either propagate > 0 or PROPAGATE status was
+	 * set.
+	 *
+	 * @param node
+	 *            the node
+	 * @param propagate
+	 *            the return value from a tryAcquireShared
+	 */
+	private void setHeadAndPropagate(final Node node, final int propagate) {
+		final Node h = head.get(); // Record old head for check below
+		setHead(node);
+		/*
+		 * Try to signal next queued node if propagation was indicated by caller
+		 * or was recorded by a previous operation (as h.waitStatus before or
+		 * after setHead). The conservatism may cause unnecessary wake-ups, but
+		 * only when there are multiple racing acquires/releases.
+		 */
+		Node nh;
+		if (propagate > 0 || h == null || h.getWaitStatus() < 0 || (nh = head.get()) == null
+				|| nh.getWaitStatus() < 0) {
+			final Node s = node.getNextWaiter();
+			if (s == null || s.isShared())
+				doReleaseShared();
+		}
+	}
+
+	/**
+	 * Release action for shared mode -- signals successor and ensures
+	 * propagation. (Note: For exclusive mode, release just amounts to calling
+	 * unparkSuccessor of head if it needs signal.)
+	 */
+	private void doReleaseShared() {
+		for (;;) {
+			final Node h = head.get();
+			if (h != null && h != tail.get()) {
+				final int ws = h.getWaitStatus();
+				if (ws == Node.SIGNAL) {
+					if (!h.compareAndSetWaitStatus(Node.SIGNAL, 0))
+						continue; // loop to recheck cases
+					unparkSuccessor(h);
+				} else if (ws == 0 && !h.compareAndSetWaitStatus(0, Node.PROPAGATE))
+					continue; // loop on failed CAS
+			}
+			if (h == head.get()) // loop if head changed
+				break;
+		}
+	}
+
 	/**
 	 * Wakes up node's successor, if one exists.
 	 *
@@ -395,6 +452,198 @@ public abstract class AbstractQueuedLock extends AbstractOwnableLock {
 		throw new InterruptedException();
 	}
 
+	/**
+	 * Acquires in shared uninterruptible mode.
+	 *
+	 * @param arg
+	 *            the acquire argument
+	 */
+	private void doAcquireShared(final int arg) {
+		final Node node = addWaiter(Node.SHARED);
+		try {
+			boolean interrupted = false;
+			for (;;) {
+				final Node p = node.predecessor();
+				if (p == head.get()) {
+					final int r = tryAcquireShared(arg);
+					if (r >= 0) {
+						setHeadAndPropagate(node, r);
+						p.setNextWaiter(null); // help GC
+						if (interrupted)
+							Thread.currentThread().interrupt();
+						return;
+					}
+				}
+				if (shouldParkAfterFailedAcquire(p, node) && parkAndCheckInterrupt())
+					interrupted = true;
+			}
+		} catch (final RuntimeException ex) {
+			cancelAcquire(node);
+			throw ex;
+		}
+	}
+
+	/**
+	 * Acquires in shared timed and interruptible mode.
+	 *
+	 * @param arg
+	 *            the acquire argument
+	 * @param nanosTimeout
+	 *            max wait time
+	 * @return {@code true} if acquired
+	 */
+	private boolean doAcquireSharedNanos(final int arg, long nanosTimeout) throws InterruptedException {
+		long lastTime = System.nanoTime();
+		final Node node = addWaiter(Node.SHARED);
+		try {
+			for (;;) {
+				final Node p = node.predecessor();
+				if (p == head.get()) {
+					final int r = tryAcquireShared(arg);
+					if (r >= 0) {
+						setHeadAndPropagate(node, r);
+						p.setNextWaiter(null); // help GC
+						return true;
+					}
+				}
+				if (nanosTimeout <= 0) {
+					cancelAcquire(node);
+					return false;
+				}
+				if (nanosTimeout > spinForTimeoutThreshold && shouldParkAfterFailedAcquire(p, node))
+					LockSupport.parkNanos(this, nanosTimeout);
+				final long now = System.nanoTime();
+				nanosTimeout -= now - lastTime;
+				lastTime = now;
+				if (Thread.interrupted())
+					break;
+			}
+		} catch (final RuntimeException ex) {
+			cancelAcquire(node);
+			throw ex;
+		}
+		// Arrive here only if interrupted
+		cancelAcquire(node);
+		throw new InterruptedException();
+	}
+
+	// Profiling support
+
+	/**
+	 * Returns the contention statistics of this lock, creating them on first
+	 * use.
+	 *
+	 * @return the statistics
+	 */
+	private LockStats stats() {
+		LockStats s = stats;
+		if (s == null)
+			synchronized (this) {
+				if ((s = stats) == null)
+					stats = s = ContentionProfiler.INSTANCE.register(this);
+			}
+		return s;
+	}
+
+	/**
+	 * Records an acquire without waiting, only called while profiling.
+	 *
+	 * @param exclusive
+	 *            whether the hold gets tracked
+	 */
+	protected final void profileAcquired(final boolean exclusive) {
+		final LockStats s = stats();
+		s.acquired();
+		if (exclusive)
+			s.hold();
+	}
+
+	/**
+	 * Records an acquire after queueing.
+	 *
+	 * @param waitStart
+	 *            nanotime the wait began
+	 * @param exclusive
+	 *            whether the hold gets tracked
+	 */
+	private void profileAcquired(final long waitStart, final boolean exclusive) {
+		final LockStats s = stats();
+		s.acquired(waitStart);
+		if (exclusive)
+			s.hold();
+	}
+
+	/**
+	 * Releases in exclusive mode while the hold is tracked. The hold ends
+	 * before the lock gets freed as the next owner starts its own.
+	 *
+	 * @param s
+	 *            the statistics
+	 * @param arg
+	 *            the release argument
+	 * @return the value returned from {@link #tryRelease}
+	 */
+	private boolean profiledRelease(final LockStats s, final int arg) {
+		final long start = s.unhold();
+		final boolean free;
+		try {
+			free = tryRelease(arg);
+		} catch (final RuntimeException ex) {
+			s.rehold(start);
+			throw ex;
+		}
+		if (!free) {
+			s.rehold(start);
+			return false;
+		}
+		s.held(start);
+		final Node h = head.get();
+		if (h != null && h.getWaitStatus() != 0)
+			unparkSuccessor(h);
+		return true;
+	}
+
+	/**
+	 * Attempts to acquire in exclusive mode without queueing, counted while
+	 * profiling.
+	 *
+	 * @param arg
+	 *            the acquire argument
+	 * @return {@code true} if acquired
+	 */
+	protected final boolean tryAcquireOnce(final int arg) {
+		if (!tryAcquire(arg))
+			return false;
+		if (ContentionProfiler.isActive())
+			profileAcquired(true);
+		return true;
+	}
+
+	/**
+	 * Attempts to acquire in shared mode without queueing, counted while
+	 * profiling.
+	 *
+	 * @param arg
+	 *            the acquire argument
+	 * @return {@code true} if acquired
+	 */
+	protected final boolean tryAcquireSharedOnce(final int arg) {
+		if (tryAcquireShared(arg) < 0)
+			return false;
+		if (ContentionProfiler.isActive())
+			profileAcquired(false);
+		return true;
+	}
+
+	/**
+	 * Returns the contention statistics.
+	 *
+	 * @return the statistics or {@code null} if never acquired while profiling
+	 */
+	public LockStats getContentionStats() {
+		return stats;
+	}
+
 	// Main exported methods
 
 	/**
@@ -453,6 +702,67 @@ public abstract class AbstractQueuedLock extends AbstractOwnableLock {
 	 */
 	protected abstract boolean tryRelease(final int arg);
 
+	/**
+	 * Attempts to acquire in shared mode. This method should query if the
+	 * state of the object permits it to be acquired in the shared mode, and if
+	 * so to acquire it.
+	 *
+	 * <p>
+	 * The default implementation throws {@link UnsupportedOperationException}.
+	 *
+	 * @param arg
+	 *            the acquire argument
+	 * @return a negative value on failure; zero if acquisition in shared mode
+	 *         succeeded but no subsequent shared-mode acquire can succeed; and
+	 *         a positive value if subsequent shared-mode acquires might also
+	 *         succeed
+	 * @throws UnsupportedOperationException
+	 *             if shared mode is not supported
+	 */
+	protected int tryAcquireShared(final int arg) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Attempts to set the state to reflect a release in shared mode.
+	 *
+	 * <p>
+	 * The default implementation throws {@link UnsupportedOperationException}.
+	 *
+	 * @param arg
+	 *            the release argument
+	 * @return {@code true} if this release of shared mode may permit a waiting
+	 *         acquire (shared or exclusive) to succeed; and {@code false}
+	 *         otherwise
+	 * @throws UnsupportedOperationException
+	 *             if shared mode is not supported
+	 */
+	protected boolean tryReleaseShared(final int arg) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Acquires in exclusive mode, ignoring interrupts. Implemented by first
+	 * invoking at least once {@link #tryAcquire}, returning on success.
+	 * Otherwise the thread is queued until success.
+	 *
+	 * @param arg
+	 *            the acquire argument
+	 */
+	public void acquire(final int arg) {
+		final boolean profiled = ContentionProfiler.isActive();
+		if (tryAcquire(arg)) {
+			if (profiled)
+				profileAcquired(true);
+			return;
+		}
+		final long start = profiled ? System.nanoTime() : 0;
+		if (acquireQueued(addWaiter(Node.EXCLUSIVE), arg))
+			Thread.currentThread().interrupt();
+		if (profiled)
+			profileAcquired(start, true);
+	}
+
 	/**
 	 * Acquires in exclusive mode, aborting if interrupted. Implemented by first
 	 * checking interrupt status, then invoking at least once
@@ -471,8 +781,16 @@ public abstract class AbstractQueuedLock extends AbstractOwnableLock {
 	public void acquireInterruptibly(final int arg) throws InterruptedException {
 		if (Thread.interrupted())
 			throw new InterruptedException();
-		if (!tryAcquire(arg))
-			doAcquireInterruptibly(arg);
+		final boolean profiled = ContentionProfiler.isActive();
+		if (tryAcquire(arg)) {
+			if (profiled)
+				profileAcquired(true);
+			return;
+		}
+		final long start = profiled ? System.nanoTime() : 0;
+		doAcquireInterruptibly(arg);
+		if (profiled)
+			profileAcquired(start, true);
 	}
 
 	/**
@@ -497,7 +815,17 @@ public abstract class AbstractQueuedLock extends AbstractOwnableLock {
 	public boolean tryAcquireNanos(final int arg, final long nanosTimeout) throws InterruptedException {
 		if (Thread.interrupted())
 			throw new InterruptedException();
-		return tryAcquire(arg) || doAcquireNanos(arg, nanosTimeout);
+		final boolean profiled = ContentionProfiler.isActive();
+		if (tryAcquire(arg)) {
+			if (profiled)
+				profileAcquired(true);
+			return true;
+		}
+		final long start = profiled ? System.nanoTime() : 0;
+		final boolean res = doAcquireNanos(arg, nanosTimeout);
+		if (profiled && res)
+			profileAcquired(start, true);
+		return res;
 	}
 
 	/**
@@ -512,6 +840,9 @@ public abstract class AbstractQueuedLock extends AbstractOwnableLock {
 	 * @return the value returned from {@link #tryRelease}
 	 */
 	public boolean release(final int arg) {
+		final LockStats s = stats;
+		if (s != null && s.isHolding())
+			return profiledRelease(s, arg);
 		if (tryRelease(arg)) {
 			final Node h = head.get();
 			if (h != null && h.getWaitStatus() != 0)
@@ -520,4 +851,92 @@ public abstract class AbstractQueuedLock extends AbstractOwnableLock {
 		}
 		return false;
 	}
+
+	/**
+	 * Acquires in shared mode, ignoring interrupts. Implemented by first
+	 * invoking at least once {@link #tryAcquireShared}, returning on success.
+	 * Otherwise the thread is queued until success.
+	 *
+	 * @param arg
+	 *            the acquire argument
+	 */
+	public void acquireShared(final int arg) {
+		final boolean profiled = ContentionProfiler.isActive();
+		if (tryAcquireShared(arg) >= 0) {
+			if (profiled)
+				profileAcquired(false);
+			return;
+		}
+		final long start = profiled ? System.nanoTime() : 0;
+		doAcquireShared(arg);
+		if (profiled)
+			profileAcquired(start, false);
+	}
+
+	/**
+	 * Acquires in shared mode, aborting if interrupted.
+	 *
+	 * @param arg
+	 *            the acquire argument
+	 * @throws InterruptedException
+	 *             if the current thread is interrupted
+	 */
+	public void acquireSharedInterruptibly(final int arg) throws InterruptedException {
+		if (Thread.interrupted())
+			throw new InterruptedException();
+		final boolean profiled = ContentionProfiler.isActive();
+		if (tryAcquireShared(arg) >= 0) {
+			if (profiled)
+				profileAcquired(false);
+			return;
+		}
+		final long start = profiled ? System.nanoTime() : 0;
+		doAcquireSharedNanos(arg, Long.MAX_VALUE);
+		if (profiled)
+			profileAcquired(start, false);
+	}
+
+	/**
+	 * Attempts to acquire in shared mode, aborting if interrupted, and failing
+	 * if the given timeout elapses.
+	 *
+	 * @param arg
+	 *            the acquire argument
+	 * @param nanosTimeout
+	 *            the maximum number of nanoseconds to wait
+	 * @return {@code true} if acquired; {@code false} if timed out
+	 * @throws InterruptedException
+	 *             if the current thread is interrupted
+	 */
+	public boolean tryAcquireSharedNanos(final int arg, final long nanosTimeout) throws InterruptedException {
+		if (Thread.interrupted())
+			throw new InterruptedException();
+		final boolean profiled = ContentionProfiler.isActive();
+		if (tryAcquireShared(arg) >= 0) {
+			if (profiled)
+				profileAcquired(false);
+			return true;
+		}
+		final long start = profiled ? System.nanoTime() : 0;
+		final boolean res = doAcquireSharedNanos(arg, nanosTimeout);
+		if (profiled && res)
+			profileAcquired(start, false);
+		return res;
+	}
+
+	/**
+	 * Releases in shared mode. Implemented by unblocking one or more threads
+	 * if {@link #tryReleaseShared} returns true.
+	 *
+	 * @param arg
+	 *            the release argument
+	 * @return the value returned from {@link #tryReleaseShared}
+	 */
+	public boolean releaseShared(final int arg) {
+		if (tryReleaseShared(arg)) {
+			doReleaseShared();
+			return true;
+		}
+		return false;
+	}
 }
@@ -0,0 +1,218 @@
+package net.xy.codebase.concurrent.jdk;
+
+import net.xy.codebase.mem.ConcurrentPool;
+
+/**
+ * shared and exclusive lock state on top of the queued lock. The lower 16 bits
+ * count the reentrant exclusive holds, the upper 16 bits the shared holds.
+ * Writers are reentrant and may acquire the shared mode while holding the
+ * exclusive one. New readers queue behind an waiting writer so writers don't
+ * starve, threads already holding the shared mode pass so nested reads can't
+ * deadlock. Shared holds are tracked per thread, the first reader in fields
+ * and all others in an thread local. Queue nodes get obtained from an pool.
+ *
+ * @author Xyan
+ *
+ */
+public abstract class AbstractSharedLock extends AbstractQueuedLock {
+	protected static final int SHARED_SHIFT = 16;
+	protected static final int SHARED_UNIT = 1 << SHARED_SHIFT;
+	protected static final int MAX_COUNT = (1 << SHARED_SHIFT) - 1;
+	protected static final int EXCLUSIVE_MASK = (1 << SHARED_SHIFT) - 1;
+
+	/**
+	 * thread which took the shared mode while it was free and its holds,
+	 * spares the thread local for uncontended reading
+	 */
+	private volatile Thread firstReader;
+	private int firstReaderHolds;
+	/**
+	 * shared holds of all other threads
+	 */
+	private final ThreadLocal<HoldCounter> readHolds = ThreadLocal.withInitial(HoldCounter::new);
+
+	private final ConcurrentPool<Node> pool = new ConcurrentPool<Node>() {
+		@Override
+		protected Node newObject() {
+			return new Node(null, 0);
+		}
+	};
+
+	@Override
+	public Node createNode(final Thread thread, final int waitStatus) {
+		final Node res = pool.obtain();
+		res.reset(thread, waitStatus);
+		return res;
+	}
+
+	/**
+	 * @param c
+	 * @return amount of shared holds in the state
+	 */
+	protected static int sharedCount(final int c) {
+		return c >>> SHARED_SHIFT;
+	}
+
+	/**
+	 * @param c
+	 * @return amount of exclusive holds in the state
+	 */
+	protected static int exclusiveCount(final int c) {
+		return c & EXCLUSIVE_MASK;
+	}
+
+	@Override
+	protected boolean tryAcquire(final int acquires) {
+		final Thread current = Thread.currentThread();
+		final int c = getLocks();
+		if (c != 0) {
+			// shared holds or another writer
+			final int w = exclusiveCount(c);
+			if (w == 0 || current != getExclusiveOwnerThread())
+				return false;
+			if (w + acquires > MAX_COUNT)
+				throw new Error("Maximum lock count exceeded");
+			setLocks(c + acquires);
+			return true;
+		}
+		if (!compareAndSetLocks(c, c + acquires))
+			return false;
+		setExclusiveOwnerThread(current);
+		return true;
+	}
+
+	@Override
+	protected boolean tryRelease(final int releases) {
+		if (Thread.currentThread() != getExclusiveOwnerThread())
+			throw new IllegalMonitorStateException();
+		final int nextc = getLocks() - releases;
+		final boolean free = exclusiveCount(nextc) == 0;
+		if (free)
+			setExclusiveOwnerThread(null);
+		setLocks(nextc);
+		return free;
+	}
+
+	@Override
+	protected int tryAcquireShared(final int unused) {
+		final Thread current = Thread.currentThread();
+		for (;;) {
+			final int c = getLocks();
+			if (exclusiveCount(c) != 0) {
+				if (getExclusiveOwnerThread() != current)
+					return -1;
+			} else if (isFirstQueuedExclusive() && !isReadHeld(current))
+				return -1;
+			if (sharedCount(c) == MAX_COUNT)
+				throw new Error("Maximum lock count exceeded");
+			if (compareAndSetLocks(c, c + SHARED_UNIT)) {
+				if (sharedCount(c) == 0) {
+					firstReader = current;
+					firstReaderHolds = 1;
+				} else if (firstReader == current)
+					firstReaderHolds++;
+				else
+					readHolds.get().count++;
+				return 1;
+			}
+		}
+	}
+
+	/**
+	 * @param current
+	 * @return true when the thread holds the shared mode already
+	 */
+	private boolean isReadHeld(final Thread current) {
+		if (firstReader == current)
+			return true;
+		final HoldCounter rh = readHolds.get();
+		if (rh.count > 0)
+			return true;
+		readHolds.remove();
+		return false;
+	}
+
+	@Override
+	protected boolean tryReleaseShared(final int unused) {
+		final Thread current = Thread.currentThread();
+		if (firstReader == current) {
+			if (--firstReaderHolds == 0)
+				firstReader = null;
+		} else {
+			final HoldCounter rh = readHolds.get();
+			// released by an foreign thread is left untracked
+			if (rh.count <= 1)
+				readHolds.remove();
+			if (rh.count > 0)
+				rh.count--;
+		}
+		for (;;) {
+			final int c = getLocks();
+			if (sharedCount(c) == 0)
+				throw new IllegalMonitorStateException();
+			final int nextc = c - SHARED_UNIT;
+			if (compareAndSetLocks(c, nextc))
+				return nextc == 0;
+		}
+	}
+
+	/**
+	 * @return true when the first queued thread waits for the exclusive mode
+	 */
+	private boolean isFirstQueuedExclusive() {
+		final Node h = head.get();
+		final Node s;
+		return h != null && (s = h.getNextWaiter()) != null && !s.isShared() && s.getThread() != null;
+	}
+
+	/**
+	 * @return true when held exclusively by any thread
+	 */
+	public boolean isWriteLocked() {
+		return exclusiveCount(getLocks()) != 0;
+	}
+
+	/**
+	 * @return true when held exclusively by the current thread
+	 */
+	public boolean isWriteLockedByCurrentThread() {
+		return getExclusiveOwnerThread() == Thread.currentThread();
+	}
+
+	/**
+	 * @return amount of shared holds
+	 */
+	public int getReadLockCount() {
+		return sharedCount(getLocks());
+	}
+
+	/**
+	 * @return amount of reentrant exclusive holds
+	 */
+	public int getWriteHoldCount() {
+		return isWriteLockedByCurrentThread() ? exclusiveCount(getLocks()) : 0;
+	}
+
+	/**
+	 * @return amount of shared holds of the current thread
+	 */
+	public int getReadHoldCount() {
+		if (firstReader == Thread.currentThread())
+			return firstReaderHolds;
+		final HoldCounter rh = readHolds.get();
+		final int res = rh.count;
+		if (res == 0)
+			readHolds.remove();
+		return res;
+	}
+
+	/**
+	 * shared holds of an thread
+	 *
+	 * @author Xyan
+	 *
+	 */
+	private static class HoldCounter {
+		private int count;
+	}
+}
@@ -86,6 +86,13 @@ public final class Node {
 	public static final int SIGNAL = -1;
 	/** waitStatus value to indicate thread is waiting on condition */
 	public static final int CONDITION = -2;
+	/**
+	 * waitStatus value to indicate the next acquireShared should
+	 * unconditionally propagate
+	 */
+	public static final int PROPAGATE = -3;
+	/** Marker to indicate a node is waiting in shared mode */
+	public static final Node SHARED = new Node(null, 0);
 	/** Marker to indicate a node is waiting in exclusive mode */
 	public static final Node EXCLUSIVE = null;
 
@@ -163,6 +170,14 @@ public final class Node {
 		this.thread = thread;
 		next.set(null);
 		prev = null;
+		nextWaiter = null;
+	}
+
+	/**
+	 * @return true if node is waiting in shared mode
+	 */
+	public boolean isShared() {
+		return nextWaiter == SHARED;
 	}
 
 	public void setNextWaiter(final Node next) {
@@ -222,4 +237,4 @@ public final class Node {
 			return p;
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,112 @@
+package net.xy.codebase.concurrent.jdk;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * reader writer lock on the queued lock, readers share the lock while writers
+ * hold it exclusive. Waiting threads of both kinds park in the same queue, an
+ * released writer wakes all readers queued up to the next writer at once.
+ * Writers may downgrade by acquiring the read lock before unlocking.
+ *
+ * @author Xyan
+ *
+ */
+public class ReadWriteQueuedLock extends AbstractSharedLock implements ReadWriteLock {
+	private final ReadLock readLock = new ReadLock();
+	private final WriteLock writeLock = new WriteLock();
+
+	@Override
+	public Lock readLock() {
+		return readLock;
+	}
+
+	@Override
+	public Lock writeLock() {
+		return writeLock;
+	}
+
+	@Override
+	public String toString() {
+		final int c = getLocks();
+		return String.format("ReadWriteQueuedLock [writes=%s,reads=%s]", exclusiveCount(c), sharedCount(c));
+	}
+
+	/**
+	 * shared view
+	 *
+	 * @author Xyan
+	 *
+	 */
+	private class ReadLock implements Lock {
+		@Override
+		public void lock() {
+			acquireShared(1);
+		}
+
+		@Override
+		public void lockInterruptibly() throws InterruptedException {
+			acquireSharedInterruptibly(1);
+		}
+
+		@Override
+		public boolean tryLock() {
+			return tryAcquireSharedOnce(1);
+		}
+
+		@Override
+		public boolean tryLock(final long time, final TimeUnit unit) throws InterruptedException {
+			return tryAcquireSharedNanos(1, unit.toNanos(time));
+		}
+
+		@Override
+		public void unlock() {
+			releaseShared(1);
+		}
+
+		@Override
+		public Condition newCondition() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * exclusive view
+	 *
+	 * @author Xyan
+	 *
+	 */
+	private class WriteLock implements Lock {
+		@Override
+		public void lock() {
+			acquire(1);
+		}
+
+		@Override
+		public void lockInterruptibly() throws InterruptedException {
+			acquireInterruptibly(1);
+		}
+
+		@Override
+		public boolean tryLock() {
+			return tryAcquireOnce(1);
+		}
+
+		@Override
+		public boolean tryLock(final long time, final TimeUnit unit) throws InterruptedException {
+			return tryAcquireNanos(1, unit.toNanos(time));
+		}
+
+		@Override
+		public void unlock() {
+			release(1);
+		}
+
+		@Override
+		public Condition newCondition() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package net.xy.codebase.concurrent.jdk;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * reader writer lock with optimistic reads. Besides the queued shared and
+ * exclusive modes an version gets incremented when the write lock is taken and
+ * again when it is released, so it is odd while written. Optimistic readers
+ * only read the version before and after reading the guarded fields, without
+ * any CAS or queueing, and retry with the read lock when validate fails.
+ *
+ * <pre>
+ * long stamp = lock.tryOptimisticRead();
+ * int x = this.x;
+ * if (!lock.validate(stamp)) {
+ * 	stamp = lock.readLock();
+ * 	x = this.x;
+ * 	lock.unlockRead(stamp);
+ * }
+ * </pre>
+ *
+ * @author Xyan
+ *
+ */
+public class StampedQueuedLock extends AbstractSharedLock {
+	/**
+	 * keeps the guarded reads before the validating version read, null when
+	 * not available
+	 */
+	private static final MethodHandle LOAD_FENCE = loadFence();
+	/**
+	 * write version, odd while write locked
+	 */
+	private final AtomicLong version = new AtomicLong(2);
+
+	/**
+	 * @return acquire fence of java 9 or the unsafe load fence of java 8
+	 */
+	private static MethodHandle loadFence() {
+		final MethodType type = MethodType.methodType(void.class);
+		try {
+			return MethodHandles.publicLookup().findStatic(Class.forName("java.lang.invoke.VarHandle"),
+					"acquireFence", type);
+		} catch (final Exception e) {
+		}
+		try {
+			final Class<?> clazz = Class.forName("sun.misc.Unsafe");
+			final Field field = clazz.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			return MethodHandles.lookup().findVirtual(clazz, "loadFence", type).bindTo(field.get(null));
+		} catch (final Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * acquires exclusive
+	 *
+	 * @return stamp for unlockWrite
+	 */
+	public long writeLock() {
+		acquire(1);
+		return written();
+	}
+
+	/**
+	 * @return stamp for unlockWrite or 0 when not immediately available
+	 */
+	public long tryWriteLock() {
+		return tryAcquireOnce(1) ? written() : 0;
+	}
+
+	/**
+	 * @return the version after taking the write lock
+	 */
+	private long written() {
+		if (exclusiveCount(getLocks()) == 1)
+			// full fence, guarded writes stay behind
+			return version.incrementAndGet();
+		return version.get();
+	}
+
+	/**
+	 * @param stamp
+	 *            of writeLock
+	 */
+	public void unlockWrite(final long stamp) {
+		if (stamp != version.get() || !isWriteLockedByCurrentThread())
+			throw new IllegalMonitorStateException();
+		if (exclusiveCount(getLocks()) == 1)
+			version.incrementAndGet();
+		release(1);
+	}
+
+	/**
+	 * acquires shared
+	 *
+	 * @return stamp for unlockRead
+	 */
+	public long readLock() {
+		acquireShared(1);
+		return version.get();
+	}
+
+	/**
+	 * @return stamp for unlockRead or 0 when not immediately available
+	 */
+	public long tryReadLock() {
+		return tryAcquireSharedOnce(1) ? version.get() : 0;
+	}
+
+	/**
+	 * @param stamp
+	 *            of readLock
+	 */
+	public void unlockRead(final long stamp) {
+		releaseShared(1);
+	}
+
+	/**
+	 * @return stamp to validate later or 0 while write locked
+	 */
+	public long tryOptimisticRead() {
+		final long v = version.get();
+		return (v & 1) == 0 ? v : 0;
+	}
+
+	/**
+	 * @param stamp
+	 * @return true when no write happened since the stamp was taken
+	 */
+	public boolean validate(final long stamp) {
+		if (LOAD_FENCE != null)
+			try {
+				LOAD_FENCE.invokeExact();
+			} catch (final Throwable e) {
+				throw new IllegalStateException("Load fence failed", e);
+			}
+		return stamp != 0 && stamp == version.get();
+	}
+
+	@Override
+	public String toString() {
+		final int c = getLocks();
+		return String.format("StampedQueuedLock [version=%s,writes=%s,reads=%s]", version.get(), exclusiveCount(c),
+				sharedCount(c));
+	}
+}
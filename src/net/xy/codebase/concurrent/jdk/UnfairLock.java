@@ -1,5 +1,7 @@
 package net.xy.codebase.concurrent.jdk;
 
+import net.xy.codebase.concurrent.ContentionProfiler;
+
 /**
  * Sync object for non-fair locks
  */
@@ -10,9 +12,11 @@ public class UnfairLock extends AbstractLock {
 	 */
 	@Override
 	public void lock() {
-		if (compareAndSetLocks(0, 1))
+		if (compareAndSetLocks(0, 1)) {
 			setExclusiveOwnerThread(Thread.currentThread());
-		else
+			if (ContentionProfiler.isActive())
+				profileAcquired(true);
+		} else
 			acquire(1);
 	}
 
@@ -20,4 +24,4 @@ public class UnfairLock extends AbstractLock {
 	protected boolean tryAcquire(final int acquires) {
 		return nonfairTryAcquire(acquires);
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -1,5 +1,8 @@
 package net.xy.codebase.exec;
 
+import java.util.Arrays;
+import java.util.function.Consumer;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,6 +16,14 @@ import org.slf4j.LoggerFactory;
  */
 public abstract class AbstractInterThreads<E extends Enum<E>> implements IInterThreads<E> {
 	private static final Logger LOG = LoggerFactory.getLogger(AbstractInterThreads.class);
+	/**
+	 * maximum amount of jobs claimed at once from the target queue
+	 */
+	protected static final int BATCH_SIZE = 64;
+	/**
+	 * claim buffer per consumer thread
+	 */
+	private static final ThreadLocal<JobBatch> BATCHES = ThreadLocal.withInitial(JobBatch::new);
 	protected IJobObserver<E> obs = new JobObserver<E>();
 
 	@Override
@@ -27,20 +38,83 @@ public abstract class AbstractInterThreads<E extends Enum<E>> implements IInterT
 
 	@Override
 	public void doAll(final E target, final int ms, final IPerfCounter measure) {
-		boolean loop = true;
-		for (Runnable job = next(target, ms); job != null; job = next(target, 0)) {
-			if (obs == null)
-				loop = runGuarded(job);
-			else if (obs.jobStart(target, job, measure)) {
-				final long start = System.nanoTime();
-				loop = runGuarded(job);
-				obs.jobEnd(target, job, measure, System.nanoTime() - start);
+		doAll(target, 0, ms, measure);
+	}
+
+	@Override
+	public void doAll(final E target, final int stripe, final int ms, final IPerfCounter measure) {
+		final Runnable first = next(target, stripe, ms);
+		if (first == null || !runObserved(target, first, measure))
+			return;
+
+		JobBatch batch = BATCHES.get();
+		if (batch.inUse)
+			// doAll called from within a job
+			batch = new JobBatch();
+		batch.inUse = true;
+		try {
+			doBatches(target, stripe, measure, batch);
+		} finally {
+			batch.inUse = false;
+		}
+	}
+
+	/**
+	 * runs claimed batches until the stripe is empty or interrupted
+	 *
+	 * @param target
+	 * @param stripe
+	 * @param measure
+	 * @param batch
+	 */
+	private void doBatches(final E target, final int stripe, final IPerfCounter measure, final JobBatch batch) {
+		while (drain(target, stripe, batch, BATCH_SIZE) > 0) {
+			final int size = batch.size;
+			batch.size = 0;
+			for (int i = 0; i < size; i++) {
+				final Runnable job = batch.jobs[i];
+				batch.jobs[i] = null;
+				if (!runObserved(target, job, measure)) {
+					// claimed but not executed jobs go back in front of their
+					// stripe, so they run first on the next doAll
+					handBack(target, stripe, batch.jobs, i + 1, size - i - 1);
+					Arrays.fill(batch.jobs, i + 1, size, null);
+					return;
+				}
 			}
-			if (!loop)
-				break;
 		}
 	}
 
+	/**
+	 * gives claimed jobs back to the head of their stripe, without observer
+	 * and overflow handling
+	 *
+	 * @param target
+	 * @param stripe
+	 * @param jobs
+	 * @param off
+	 * @param len
+	 */
+	protected abstract void handBack(E target, int stripe, Runnable[] jobs, int off, int len);
+
+	/**
+	 * @param target
+	 * @param job
+	 * @param measure
+	 * @return true to procceed normaly
+	 */
+	protected boolean runObserved(final E target, final Runnable job, final IPerfCounter measure) {
+		boolean loop = true;
+		if (obs == null)
+			loop = runGuarded(job);
+		else if (obs.jobStart(target, job, measure)) {
+			final long start = System.nanoTime();
+			loop = runGuarded(job);
+			obs.jobEnd(target, job, measure, System.nanoTime() - start);
+		}
+		return loop;
+	}
+
 	/**
 	 * @param job
 	 * @return true to procceed normaly
@@ -56,4 +130,24 @@ public abstract class AbstractInterThreads<E extends Enum<E>> implements IInterT
 		}
 		return true;
 	}
+
+	/**
+	 * reusable buffer for claimed jobs of an consumer thread
+	 *
+	 * @author Xyan
+	 *
+	 */
+	private static class JobBatch implements Consumer<Runnable> {
+		private final Runnable[] jobs = new Runnable[BATCH_SIZE];
+		private int size;
+		/**
+		 * set while an doAll of the thread uses it
+		 */
+		private boolean inUse;
+
+		@Override
+		public void accept(final Runnable job) {
+			jobs[size++] = job;
+		}
+	}
 }
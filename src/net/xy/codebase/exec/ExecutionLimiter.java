@@ -42,6 +42,10 @@ public class ExecutionLimiter<E extends Enum<E>> {
 	 * in this executor stripe
 	 */
 	private final E target;
+	/**
+	 * optional key for keyed targets
+	 */
+	private final Object key;
 
 	/**
 	 * default
@@ -50,12 +54,26 @@ public class ExecutionLimiter<E extends Enum<E>> {
 	 * @param amount
 	 *            of concurrent running jobs
 	 */
+	public ExecutionLimiter(final Runnable runnable, final int amount, final InterThreads<E> inter, final E target) {
+		this(runnable, amount, inter, target, null);
+	}
+
+	/**
+	 * running in the stripe of the key
+	 *
+	 * @param runnable
+	 * @param amount
+	 * @param inter
+	 * @param target
+	 * @param key
+	 */
 	@SuppressWarnings("unchecked")
 	public <T extends ITask & IPriority> ExecutionLimiter(final Runnable runnable, final int amount,
-			final InterThreads<E> inter, final E target) {
+			final InterThreads<E> inter, final E target, final Object key) {
 		this.amount = amount;
 		this.inter = inter;
 		this.target = target;
+		this.key = key;
 		if (runnable instanceof IPriority)
 			capsule = new PriorityLimitedRunnable((T) runnable);
 		else
@@ -94,7 +112,7 @@ public class ExecutionLimiter<E extends Enum<E>> {
 				// start runnable
 				if (LOG.isTraceEnabled())
 					LOG.trace("Start limited [" + capsule + "]");
-				if (!inter.run(target, capsule)) {
+				if (!schedule(capsule)) {
 					this.runs.decrementAndGet();
 					LOG.error("Error starting limiter, decrementing [" + this + "]");
 					break;
@@ -105,6 +123,14 @@ public class ExecutionLimiter<E extends Enum<E>> {
 		}
 	}
 
+	/**
+	 * @param job
+	 * @return true on success
+	 */
+	private boolean schedule(final Runnable job) {
+		return key != null ? inter.run(target, key, job) : inter.run(target, job);
+	}
+
 	/**
 	 * encapsulation runnable
 	 *
@@ -138,7 +164,7 @@ public class ExecutionLimiter<E extends Enum<E>> {
 					LOG.trace("Stopping limited [" + runnable + "][" + runnable.getClass().getSimpleName() + "]");
 				return;
 			}
-			if (!inter.run(target, this))
+			if (!schedule(this))
 				LOG.error("Error rescheduling limiter [" + runnable + "][" + runnable.getClass().getSimpleName() + "]");
 		}
 
@@ -0,0 +1,260 @@
+package net.xy.codebase.exec;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.xy.codebase.collection.IPriority;
+import net.xy.codebase.exec.tasks.ICoveredRunnable;
+import net.xy.codebase.exec.tasks.ITask;
+import net.xy.codebase.exec.tasks.InterThreadScheduledTask;
+
+/**
+ * limiter to execute an runnable not more often than its token bucket allows.
+ * Every run call leads to one execution, calls exceeding the budget get
+ * delayed by the timeout queue until the next token is due. Executions of one
+ * limiter never overlap. Buckets without own parent get charged to the targets
+ * budget, looked up on every acquire so budget changes apply at once.
+ *
+ * @author Xyan
+ *
+ */
+public class ExecutionRateLimiter<E extends Enum<E>> {
+	private static final Logger LOG = LoggerFactory.getLogger(ExecutionRateLimiter.class);
+	/**
+	 * requested but not yet finished runs, the call raising it from 0 starts
+	 * the chain
+	 */
+	private final AtomicInteger pending = new AtomicInteger();
+	/**
+	 * limiting capsule
+	 */
+	private final RateLimitedRunnable capsule;
+	private final RateLimitedScheduler scheduler;
+	/**
+	 * budget of this limiter
+	 */
+	private final TokenBucket bucket;
+	/**
+	 * for stopping limiter
+	 */
+	private boolean enabled = true;
+	/**
+	 * executor reference
+	 */
+	private final InterThreads<E> inter;
+	/**
+	 * in this executor stripe
+	 */
+	private final E target;
+	/**
+	 * optional key for keyed targets
+	 */
+	private final Object key;
+
+	/**
+	 * default
+	 *
+	 * @param runnable
+	 * @param bucket
+	 *            may be shared with other limiters
+	 * @param inter
+	 * @param target
+	 */
+	public ExecutionRateLimiter(final Runnable runnable, final TokenBucket bucket, final InterThreads<E> inter,
+			final E target) {
+		this(runnable, bucket, inter, target, null);
+	}
+
+	/**
+	 * running in the stripe of the key
+	 *
+	 * @param runnable
+	 * @param bucket
+	 * @param inter
+	 * @param target
+	 * @param key
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends ITask & IPriority> ExecutionRateLimiter(final Runnable runnable, final TokenBucket bucket,
+			final InterThreads<E> inter, final E target, final Object key) {
+		this.bucket = bucket;
+		this.inter = inter;
+		this.target = target;
+		this.key = key;
+		if (runnable instanceof IPriority)
+			capsule = new PriorityRateLimitedRunnable((T) runnable, this);
+		else
+			capsule = new RateLimitedRunnable(runnable, this);
+		scheduler = new RateLimitedScheduler(inter);
+	}
+
+	/**
+	 * for stopping or desabling limiter
+	 *
+	 * @param enabled
+	 */
+	public void setEnabled(final boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public TokenBucket getBucket() {
+		return bucket;
+	}
+
+	/**
+	 * @return amount of requested runs not yet done
+	 */
+	public int getPending() {
+		return pending.get();
+	}
+
+	/**
+	 * requests one execution
+	 */
+	public void run() {
+		if (!enabled)
+			return;
+		if (pending.getAndIncrement() == 0)
+			replan();
+	}
+
+	/**
+	 * @return own parent of the bucket or the targets current budget
+	 */
+	private TokenBucket parent() {
+		final TokenBucket own = bucket.getParent();
+		return own != null ? own : inter.getRateLimit(target);
+	}
+
+	/**
+	 * queues the capsule when a token is available or delays it until then
+	 */
+	private void replan() {
+		final long now = System.nanoTime();
+		final long delay = bucket.delay(now, parent());
+		final boolean res;
+		if (delay > 0) {
+			if (LOG.isTraceEnabled())
+				LOG.trace("Delay rate limited [" + delay + "][" + capsule + "]");
+			scheduler.setStop(false);
+			scheduler.setNextTime(now + delay);
+			res = inter.start(scheduler);
+		} else
+			res = key != null ? inter.run(target, key, capsule) : inter.run(target, capsule);
+		if (!res) {
+			pending.set(0);
+			LOG.error("Failed to schedule rate limited, reseting [" + this + "]");
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ExecutionRateLimiter [%s,%s,%s,%s]", pending.get(), enabled, bucket, capsule);
+	}
+
+	/**
+	 * fixed container for delaying the capsule
+	 *
+	 * @author Xyan
+	 *
+	 */
+	public class RateLimitedScheduler extends InterThreadScheduledTask<E> {
+		public RateLimitedScheduler(final InterThreads<E> inter) {
+			super(target, 0, 0, capsule, inter);
+			setKey(key);
+		}
+
+		@Override
+		public long nextRun() {
+			if (!enabled && setStop(true))
+				// run gets dropped, the next request starts a new chain
+				pending.set(0);
+			return super.nextRun();
+		}
+	}
+
+	/**
+	 * encapsulation runnable
+	 *
+	 * @author Xyan
+	 *
+	 */
+	public static class RateLimitedRunnable implements Runnable, ICoveredRunnable {
+		/**
+		 * target action to run
+		 */
+		private final Runnable runnable;
+		/**
+		 * backreference to limiter
+		 */
+		private final ExecutionRateLimiter<?> limiter;
+
+		/**
+		 * default
+		 *
+		 * @param runnable
+		 * @param limiter
+		 */
+		public RateLimitedRunnable(final Runnable runnable, final ExecutionRateLimiter<?> limiter) {
+			this.runnable = runnable;
+			this.limiter = limiter;
+		}
+
+		@Override
+		public void run() {
+			final ExecutionRateLimiter<?> lim = limiter;
+			if (!lim.enabled) {
+				lim.pending.set(0);
+				return;
+			}
+			if (lim.bucket.tryAcquire(System.nanoTime(), lim.parent()) > 0) {
+				// shared budget got taken meanwhile
+				lim.replan();
+				return;
+			}
+			try {
+				runnable.run();
+			} catch (final Exception e) {
+				LOG.error("Error running rate limited", e);
+			}
+			if (lim.pending.decrementAndGet() > 0)
+				lim.replan();
+		}
+
+		@Override
+		public Runnable getRunnable() {
+			return runnable;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("RateLimitedRunnable [%s]", runnable);
+		}
+	}
+
+	/**
+	 * encapsulation with priority support
+	 *
+	 * @author Xyan
+	 *
+	 */
+	public static class PriorityRateLimitedRunnable extends RateLimitedRunnable implements IPriority {
+		/**
+		 * target action to run
+		 */
+		private final IPriority runnable;
+
+		public <R extends Runnable & IPriority> PriorityRateLimitedRunnable(final R runnable,
+				final ExecutionRateLimiter<?> limiter) {
+			super(runnable, limiter);
+			this.runnable = runnable;
+		}
+
+		@Override
+		public int getPriority() {
+			return runnable.getPriority();
+		}
+	}
+}
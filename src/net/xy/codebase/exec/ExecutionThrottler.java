@@ -47,6 +47,10 @@ public class ExecutionThrottler<E extends Enum<E>> {
 	 * in this executor stripe
 	 */
 	private final E target;
+	/**
+	 * optional key for keyed targets
+	 */
+	private final Object key;
 
 	/**
 	 * with 0 intervall ensures only that not 2 runnable are scheduled at the same
@@ -64,11 +68,26 @@ public class ExecutionThrottler<E extends Enum<E>> {
 	 * @param runnable
 	 * @param interval in ms
 	 */
+	public ExecutionThrottler(final Runnable runnable, final int interval, final InterThreads<E> inter,
+			final E target) {
+		this(runnable, interval, inter, target, null);
+	}
+
+	/**
+	 * running in the stripe of the key
+	 *
+	 * @param runnable
+	 * @param interval in ms
+	 * @param inter
+	 * @param target
+	 * @param key
+	 */
 	@SuppressWarnings("unchecked")
 	public <T extends ITask & IPriority> ExecutionThrottler(final Runnable runnable, final int interval,
-			final InterThreads<E> inter, final E target) {
+			final InterThreads<E> inter, final E target, final Object key) {
 		this.inter = inter;
 		this.target = target;
+		this.key = key;
 		intervalNs = TimeUnit.MILLISECONDS.toNanos(interval);
 		if (runnable instanceof IPriority)
 			capsule = new PriorityThrottledRunnable((T) runnable, this);
@@ -125,7 +144,7 @@ public class ExecutionThrottler<E extends Enum<E>> {
 		} else {
 			if (LOG.isTraceEnabled())
 				LOG.trace("Schedule directly [" + this + "]");
-			return inter.run(target, capsule);
+			return key != null ? inter.run(target, key, capsule) : inter.run(target, capsule);
 		}
 	}
 
@@ -144,6 +163,7 @@ public class ExecutionThrottler<E extends Enum<E>> {
 	public class ThrottledScheduler extends InterThreadScheduledTask {
 		public ThrottledScheduler(final InterThreads<E> inter) {
 			super(target, 0, 0, capsule, inter);
+			setKey(key);
 		}
 
 		@Override
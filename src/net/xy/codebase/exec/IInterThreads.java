@@ -1,5 +1,7 @@
 package net.xy.codebase.exec;
 
+import java.util.function.Consumer;
+
 import net.xy.codebase.exec.tasks.ITask;
 import net.xy.codebase.exec.tasks.ScheduledTask;
 import net.xy.codebase.exec.tq.IQueueObserver;
@@ -23,6 +25,39 @@ public interface IInterThreads<E extends Enum<E>> {
 	 */
 	public Runnable next(E target, int ms);
 
+	/**
+	 * waits up to ms for the next job of an stripe of a keyed target
+	 *
+	 * @param target
+	 * @param stripe
+	 *            0 is the plain target queue
+	 * @param ms
+	 * @return
+	 */
+	public Runnable next(E target, int stripe, int ms);
+
+	/**
+	 * takes up to max waiting jobs at once without waiting
+	 *
+	 * @param target
+	 * @param consumer
+	 *            receives the jobs in queue order, must not throw
+	 * @param max
+	 * @return amount of taken jobs
+	 */
+	public int drain(E target, Consumer<Runnable> consumer, int max);
+
+	/**
+	 * takes up to max waiting jobs of an stripe at once without waiting
+	 *
+	 * @param target
+	 * @param stripe
+	 * @param consumer
+	 * @param max
+	 * @return amount of taken jobs
+	 */
+	public int drain(E target, int stripe, Consumer<Runnable> consumer, int max);
+
 	/**
 	 * waits up to ms for at least one job to execute up to all jobs in que are
 	 * executed
@@ -33,6 +68,23 @@ public interface IInterThreads<E extends Enum<E>> {
 	 */
 	public void doAll(E target, int ms, IPerfCounter measure);
 
+	/**
+	 * executes jobs of one stripe of a keyed target, each stripe must be served
+	 * by only one thread to keep per key order
+	 *
+	 * @param target
+	 * @param stripe
+	 * @param ms
+	 * @param measure
+	 */
+	public void doAll(E target, int stripe, int ms, IPerfCounter measure);
+
+	/**
+	 * @param target
+	 * @return amount of stripes of the target, 1 when not keyed
+	 */
+	public int getStripes(E target);
+
 	/**
 	 * put an job in this target threads category queue
 	 *
@@ -42,6 +94,46 @@ public interface IInterThreads<E extends Enum<E>> {
 	 */
 	public boolean run(E target, Runnable job);
 
+	/**
+	 * put an job in the stripe of the key, jobs of equal keys run in order and
+	 * different keys in parallel
+	 *
+	 * @param target
+	 * @param key
+	 *            hashed onto the targets stripes
+	 * @param job
+	 * @return true on success
+	 */
+	public boolean run(E target, Object key, Runnable job);
+
+	/**
+	 * reserves queue slots of the target for later runReserved calls, plain
+	 * runs treat them as occupied. Lets producers slow down before the queue
+	 * overflows.
+	 *
+	 * @param target
+	 * @param amount
+	 * @return false when the queue has not enough free slots
+	 */
+	public boolean tryReserve(E target, int amount);
+
+	/**
+	 * puts an job into an slot reserved by tryReserve
+	 *
+	 * @param target
+	 * @param job
+	 * @return true on success, false also when no slot is reserved
+	 */
+	public boolean runReserved(E target, Runnable job);
+
+	/**
+	 * gives back reserved slots which won't be used
+	 *
+	 * @param target
+	 * @param amount
+	 */
+	public void release(E target, int amount);
+
 	/**
 	 * gets an bounded throtler for the target thread. Has builtin IPriority
 	 * support.
@@ -63,6 +155,17 @@ public interface IInterThreads<E extends Enum<E>> {
 	 */
 	public ExecutionThrottler throttled(E thread, Runnable run, int intervallMs);
 
+	/**
+	 * gets an bounded throtler running in the stripe of the key
+	 *
+	 * @param thread
+	 * @param key
+	 * @param run
+	 * @param intervallMs
+	 * @return null on failure
+	 */
+	public ExecutionThrottler<E> throttled(E thread, Object key, Runnable run, int intervallMs);
+
 	/**
 	 * gets an concurrency limiter for parallel execution by specific amounts.
 	 * Has builtin IPriority support.
@@ -75,6 +178,44 @@ public interface IInterThreads<E extends Enum<E>> {
 	 */
 	public ExecutionLimiter limited(E thread, Runnable run, int amount);
 
+	/**
+	 * gets an concurrency limiter running in the stripe of the key
+	 *
+	 * @param thread
+	 * @param key
+	 * @param run
+	 * @param amount
+	 * @return null on failure
+	 */
+	public ExecutionLimiter<E> limited(E thread, Object key, Runnable run, int amount);
+
+	/**
+	 * gets an rate limiter executing at most rate runs per second with bursts
+	 * up to burst. It gets charged to the targets current budget when one is
+	 * set.
+	 * Has builtin IPriority support.
+	 *
+	 * @param thread
+	 * @param run
+	 * @param rate
+	 *            per second
+	 * @param burst
+	 * @return null on failure
+	 */
+	public ExecutionRateLimiter<E> rateLimited(E thread, Runnable run, double rate, int burst);
+
+	/**
+	 * gets an rate limiter drawing from the given bucket, limiters sharing an
+	 * bucket share its budget. Buckets without own parent get charged to the
+	 * targets current budget.
+	 *
+	 * @param thread
+	 * @param run
+	 * @param bucket
+	 * @return null on failure
+	 */
+	public ExecutionRateLimiter<E> rateLimited(E thread, Runnable run, TokenBucket bucket);
+
 	/**
 	 * enques an runnable for later execution
 	 *
@@ -86,6 +227,20 @@ public interface IInterThreads<E extends Enum<E>> {
 	 */
 	public ScheduledTask runLater(E thread, Runnable run, int timeout);
 
+	/**
+	 * enques an runnable for later execution allowed to be delayed by slack to
+	 * get coalesced with other timers
+	 *
+	 * @param thread
+	 * @param run
+	 * @param timeout
+	 *            in milliseconds
+	 * @param slack
+	 *            allowed lateness in milliseconds
+	 * @return null on failure
+	 */
+	public ScheduledTask runLater(E thread, Runnable run, int timeout, int slack);
+
 	/**
 	 * starts an intervall regulary dilivering runnables to target thread
 	 *
@@ -98,6 +253,21 @@ public interface IInterThreads<E extends Enum<E>> {
 	 */
 	public ScheduledTask runIntervall(E thread, Runnable run, int intervall);
 
+	/**
+	 * starts an intervall regulary dilivering runnables to target thread, each
+	 * run allowed to be delayed by slack to get coalesced with other timers
+	 *
+	 * @param thread
+	 *            target thread category
+	 * @param run
+	 * @param intervall
+	 *            intervall to run at in milliseconds
+	 * @param slack
+	 *            allowed lateness in milliseconds
+	 * @return null on failure
+	 */
+	public ScheduledTask runIntervall(E thread, Runnable run, int intervall, int slack);
+
 	/**
 	 * starts an intervall regulary dilivering runnables to target thread, with
 	 * an predefined start timeout
@@ -167,6 +337,14 @@ public interface IInterThreads<E extends Enum<E>> {
 		 * @param job
 		 */
 		public void jobAdded(E target, Runnable job);
+
+		/**
+		 * @return true to get jobs stamped with their enqueue time as
+		 *         TimedRunnable
+		 */
+		public default boolean isTimingJobs() {
+			return false;
+		}
 	}
 
 	/**
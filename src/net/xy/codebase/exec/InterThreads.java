@@ -2,11 +2,16 @@ package net.xy.codebase.exec;
 
 import java.util.EnumMap;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.xy.codebase.collection.ParkingQueue;
+import net.xy.codebase.collection.QueueType;
+import net.xy.codebase.concurrent.IWaitStrategy;
+import net.xy.codebase.exec.pool.VirtualExecutor;
 import net.xy.codebase.exec.tasks.ITask;
 import net.xy.codebase.exec.tasks.InterThreadScheduledTask;
 import net.xy.codebase.exec.tasks.ScheduledTask;
@@ -29,12 +34,33 @@ public class InterThreads<E extends Enum<E>> extends AbstractInterThreads<E> {
 	 * timeout queue for delayed task execution
 	 */
 	protected final InterTimeoutQueue tque;
+	/**
+	 * targets whose jobs run on their own virtual threads, copy on write
+	 */
+	private volatile EnumMap<E, VirtualExecutor> virtuals;
+	/**
+	 * keyed targets sub queues, index 0 is the plain target queue, copy on
+	 * write
+	 */
+	private volatile EnumMap<E, TrackingQueue<Runnable>[]> stripes;
+	/**
+	 * budgets shared by all rate limiters of an target, copy on write
+	 */
+	private volatile EnumMap<E, TokenBucket> buckets;
+	/**
+	 * for drop logging without observer
+	 */
+	private volatile long lastDropMessage;
+	private final AtomicInteger dropCounter = new AtomicInteger();
 
 	/**
 	 * inner, initializing common fields
 	 */
-	private InterThreads() {
+	private InterThreads(final Class<E> enun) {
 		tque = new InterTimeoutQueue("InterThreads", this);
+		virtuals = new EnumMap<E, VirtualExecutor>(enun);
+		stripes = new EnumMap<E, TrackingQueue<Runnable>[]>(enun);
+		buckets = new EnumMap<E, TokenBucket>(enun);
 	}
 
 	/**
@@ -44,11 +70,28 @@ public class InterThreads<E extends Enum<E>> extends AbstractInterThreads<E> {
 	 * @param maxCapacity
 	 */
 	public InterThreads(final Class<E> enun, final int maxCapacity) {
-		this();
+		this(enun, maxCapacity, new EnumMap<E, QueueType>(enun));
+	}
+
+	/**
+	 * with queue implementations choosen per target, unmapped targets get the
+	 * default ARRAY type
+	 *
+	 * @param enun
+	 * @param maxCapacity
+	 * @param types
+	 */
+	public InterThreads(final Class<E> enun, final int maxCapacity, final EnumMap<E, QueueType> types) {
+		this(enun);
 		final E[] evals = enun.getEnumConstants();
 		ctxs = new EnumMap<E, TrackingQueue<Runnable>>(enun);
-		for (final E val : evals)
-			ctxs.put(val, new TrackingQueue<Runnable>(new ParkingQueue<Runnable>(Runnable.class, maxCapacity)));
+		for (final E val : evals) {
+			QueueType type = types.get(val);
+			if (type == null)
+				type = QueueType.ARRAY;
+			ctxs.put(val, new TrackingQueue<Runnable>(
+					new ParkingQueue<Runnable>(type.create(Runnable.class, maxCapacity)), maxCapacity));
+		}
 	}
 
 	/**
@@ -57,7 +100,7 @@ public class InterThreads<E extends Enum<E>> extends AbstractInterThreads<E> {
 	 * @param giv
 	 */
 	public InterThreads(final Class<E> enun, final EnumMap<E, ParkingQueue<Runnable>> giv) {
-		this();
+		this(enun);
 		ctxs = new EnumMap<E, TrackingQueue<Runnable>>(enun);
 		for (final Entry<E, ParkingQueue<Runnable>> val : giv.entrySet())
 			ctxs.put(val.getKey(), new TrackingQueue<Runnable>(val.getValue()));
@@ -77,13 +120,227 @@ public class InterThreads<E extends Enum<E>> extends AbstractInterThreads<E> {
 		return ctxs.get(target);
 	}
 
+	/**
+	 * @param target
+	 * @param stripe
+	 * @return the stripes queue or null
+	 */
+	protected TrackingQueue<Runnable> get(final E target, final int stripe) {
+		if (stripe == 0)
+			return get(target);
+		final TrackingQueue<Runnable>[] ques = stripes.get(target);
+		return ques != null && stripe < ques.length ? ques[stripe] : null;
+	}
+
+	/**
+	 * splits the target into stripes for keyed jobs, stripe 0 stays the plain
+	 * target queue. Each stripe must be served by only one thread calling
+	 * doAll with its stripe index. Targets running on virtual threads can't
+	 * be striped.
+	 *
+	 * @param target
+	 * @param count
+	 *            of stripes
+	 * @param type
+	 *            of the added queues
+	 * @param maxCapacity
+	 *            of the added queues
+	 */
+	public void setStripes(final E target, final int count, final QueueType type, final int maxCapacity) {
+		final TrackingQueue<Runnable> first = get(target);
+		if (first == null)
+			throw new IllegalArgumentException("Target job queue don't exists [" + target + "]");
+		synchronized (this) {
+			if (count > 1 && virtuals.containsKey(target))
+				throw new IllegalArgumentException("Virtual targets can't be striped [" + target + "]");
+			final TrackingQueue<Runnable>[] old = stripes.get(target);
+			final TrackingQueue<Runnable>[] ques = newQueues(Math.max(count, 1));
+			ques[0] = first;
+			for (int i = 1; i < ques.length; i++) {
+				ques[i] = old != null && i < old.length ? old[i]
+						: new TrackingQueue<Runnable>(new ParkingQueue<Runnable>(type.create(Runnable.class,
+								maxCapacity)), maxCapacity);
+				ques[i].setOverflow(first.getOverflow(), first.getBlockMillis());
+			}
+			checkOverflow(target, first.getOverflow(), ques);
+			final EnumMap<E, TrackingQueue<Runnable>[]> nue = stripes.clone();
+			nue.put(target, ques);
+			stripes = nue;
+		}
+	}
+
+	@Override
+	public int getStripes(final E target) {
+		final TrackingQueue<Runnable>[] ques = stripes.get(target);
+		return ques != null ? ques.length : 1;
+	}
+
+	/**
+	 * @param target
+	 * @param key
+	 * @return stripe index of the key
+	 */
+	private int stripe(final E target, final Object key) {
+		final int count = getStripes(target);
+		if (count == 1 || key == null)
+			return 0;
+		return Math.floorMod(key.hashCode() * 0x9E3779B9, count);
+	}
+
+	/**
+	 * sets how the target threads wait in next for new jobs
+	 *
+	 * @param target
+	 * @param waitStrategy
+	 */
+	public void setWaitStrategy(final E target, final IWaitStrategy waitStrategy) {
+		final TrackingQueue<Runnable> que = get(target);
+		if (que == null)
+			throw new IllegalArgumentException("Target job queue don't exists [" + target + "]");
+		que.setWaitStrategy(waitStrategy);
+	}
+
+	/**
+	 * lets each job of the target run on its own virtual thread instead of
+	 * waiting for doAll, the queue keeps order and drop handling and the
+	 * observer sees the jobs as usual. Striped targets can't run virtual and
+	 * as each pass takes from the queue on its own thread the queue must allow
+	 * multiple consumers, doAll must not be used on virtual targets.
+	 *
+	 * @param target
+	 * @param exec
+	 *            null to go back to doAll processing
+	 */
+	public void setVirtual(final E target, final VirtualExecutor exec) {
+		final TrackingQueue<Runnable> que = get(target);
+		if (que == null)
+			throw new IllegalArgumentException("Target job queue don't exists [" + target + "]");
+		if (exec != null && !que.isMultiConsumer())
+			throw new IllegalArgumentException("Virtual targets need an multi consumer queue [" + target + "]");
+		synchronized (this) {
+			if (exec != null && getStripes(target) > 1)
+				throw new IllegalArgumentException("Striped targets can't run virtual [" + target + "]");
+			final EnumMap<E, VirtualExecutor> nue = virtuals.clone();
+			if (exec != null)
+				nue.put(target, exec);
+			else
+				nue.remove(target);
+			virtuals = nue;
+		}
+	}
+
+	/**
+	 * sets what happens to jobs for the target while its queue is full,
+	 * applies to all stripes. CALLER_RUNS is not allowed for striped targets
+	 * and DROP_OLDEST only for queues with multiple consumers.
+	 *
+	 * @param target
+	 * @param policy
+	 * @param blockMillis
+	 *            maximum wait for BLOCK, -1 waits endless
+	 */
+	public void setOverflowPolicy(final E target, final OverflowPolicy policy, final long blockMillis) {
+		final TrackingQueue<Runnable> que = get(target);
+		if (que == null)
+			throw new IllegalArgumentException("Target job queue don't exists [" + target + "]");
+		synchronized (this) {
+			final TrackingQueue<Runnable>[] ques = stripes.get(target);
+			if (ques != null)
+				checkOverflow(target, policy, ques);
+			else {
+				final TrackingQueue<Runnable>[] single = newQueues(1);
+				single[0] = que;
+				checkOverflow(target, policy, single);
+			}
+			que.setOverflow(policy, blockMillis);
+			if (ques != null)
+				for (final TrackingQueue<Runnable> sque : ques)
+					sque.setOverflow(policy, blockMillis);
+		}
+	}
+
+	/**
+	 * @param count
+	 * @return empty queue array
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static TrackingQueue<Runnable>[] newQueues(final int count) {
+		return new TrackingQueue[count];
+	}
+
+	/**
+	 * @param target
+	 * @param policy
+	 * @param ques
+	 *            all queues of the target
+	 */
+	private void checkOverflow(final E target, final OverflowPolicy policy, final TrackingQueue<Runnable>[] ques) {
+		if (policy == OverflowPolicy.CALLER_RUNS && ques.length > 1)
+			// would run besides the stripes thread and before older jobs
+			throw new IllegalArgumentException("Caller runs breaks the key order of striped targets [" + target + "]");
+		if (policy == OverflowPolicy.DROP_OLDEST)
+			for (final TrackingQueue<Runnable> que : ques)
+				if (!que.isMultiConsumer())
+					// producers take the oldest job besides the consumer
+					throw new IllegalArgumentException("Drop oldest needs multi consumer queues [" + target + "]");
+	}
+
+	/**
+	 * sets the budget all rate limiters of the target get charged to, applies
+	 * at once to existing limiters whose bucket has no own parent
+	 *
+	 * @param target
+	 * @param rate
+	 *            per second or 0 to remove the budget
+	 * @param burst
+	 */
+	public void setRateLimit(final E target, final double rate, final int burst) {
+		synchronized (this) {
+			final EnumMap<E, TokenBucket> nue = buckets.clone();
+			if (rate > 0)
+				nue.put(target, new TokenBucket(rate, burst));
+			else
+				nue.remove(target);
+			buckets = nue;
+		}
+	}
+
+	/**
+	 * @param target
+	 * @return the targets budget or null
+	 */
+	public TokenBucket getRateLimit(final E target) {
+		return buckets.get(target);
+	}
+
+	@Override
+	public boolean tryReserve(final E target, final int amount) {
+		final TrackingQueue<Runnable> que = get(target);
+		if (que == null)
+			throw new IllegalArgumentException("Target job queue don't exists [" + target + "]");
+		return que.tryReserve(amount);
+	}
+
+	@Override
+	public void release(final E target, final int amount) {
+		final TrackingQueue<Runnable> que = get(target);
+		if (que == null)
+			throw new IllegalArgumentException("Target job queue don't exists [" + target + "]");
+		que.release(amount);
+	}
+
 	public int getQueueAmount() {
 		return ctxs.size();
 	}
 
 	@Override
 	public Runnable next(final E target, final int ms) {
-		final TrackingQueue<Runnable> que = get(target);
+		return next(target, 0, ms);
+	}
+
+	@Override
+	public Runnable next(final E target, final int stripe, final int ms) {
+		final TrackingQueue<Runnable> que = get(target, stripe);
 		if (que == null)
 			throw new IllegalArgumentException("Target job queue don't exists [" + target + "]");
 		final Runnable runnable = que.take(ms);
@@ -92,20 +349,172 @@ public class InterThreads<E extends Enum<E>> extends AbstractInterThreads<E> {
 		return runnable;
 	}
 
+	@Override
+	public int drain(final E target, final Consumer<Runnable> consumer, final int max) {
+		return drain(target, 0, consumer, max);
+	}
+
+	@Override
+	public int drain(final E target, final int stripe, final Consumer<Runnable> consumer, final int max) {
+		final TrackingQueue<Runnable> que = get(target, stripe);
+		if (que == null)
+			throw new IllegalArgumentException("Target job queue don't exists [" + target + "]");
+		return que.drainTo(consumer, max);
+	}
+
 	@Override
 	public boolean run(final E target, final Runnable job) {
+		return enqueue(target, 0, job);
+	}
+
+	@Override
+	public boolean run(final E target, final Object key, final Runnable job) {
+		return enqueue(target, stripe(target, key), job);
+	}
+
+	@Override
+	public boolean runReserved(final E target, final Runnable job) {
 		final TrackingQueue<Runnable> que = get(target);
+		if (que == null)
+			throw new IllegalArgumentException("Target job queue don't exists [" + target + "]");
+		final Runnable timed = timed(job);
+		if (!que.addReserved(timed)) {
+			dropped(target, job, que);
+			return false;
+		}
+		return added(target, que, job);
+	}
+
+	@Override
+	protected void handBack(final E target, final int stripe, final Runnable[] jobs, final int off, final int len) {
+		final TrackingQueue<Runnable> que = get(target, stripe);
+		if (que == null)
+			throw new IllegalArgumentException("Target job queue don't exists [" + target + "][" + stripe + "]");
+		que.handBack(jobs, off, len);
+	}
+
+	/**
+	 * @param target
+	 * @param stripe
+	 * @param job
+	 * @return true on success
+	 */
+	private boolean enqueue(final E target, final int stripe, final Runnable job) {
+		final TrackingQueue<Runnable> que = get(target, stripe);
 		if (que == null) {
 			LOG.error("Target job queue don't exists [" + target + "][" + job + "]");
 			return false;
 		}
-		if (!que.add(job)) {
-			if (obs != null)
-				obs.jobDroped(target, job, que.size());
-			else
-				LOG.error("Target thread too full droping job [" + target + "][" + que.size() + "][" + job + "]");
+		final Runnable timed = timed(job);
+		if (!que.add(timed)) {
+			if (que.getOverflow() == OverflowPolicy.CALLER_RUNS) {
+				runObserved(target, timed, null);
+				return true;
+			}
+			if (!overflow(target, que, timed, job))
+				return false;
+		}
+		return added(target, que, job);
+	}
+
+	/**
+	 * @param job
+	 * @return the job wrapped for timing when the observer wants it
+	 */
+	private Runnable timed(final Runnable job) {
+		final IJobObserver<E> lobs = obs;
+		return lobs != null && lobs.isTimingJobs() && !(job instanceof TimedRunnable) ? TimedRunnable.wrap(job) : job;
+	}
+
+	/**
+	 * @param job
+	 * @return the job without timing wrapper
+	 */
+	private static Runnable unwrap(final Runnable job) {
+		return job instanceof TimedRunnable ? ((TimedRunnable) job).getRunnable() : job;
+	}
+
+	/**
+	 * applies the queues waiting or replacing overflow policy to an rejected
+	 * job
+	 *
+	 * @param target
+	 * @param que
+	 * @param timed
+	 * @param job
+	 * @return true when the job got queued after all
+	 */
+	private boolean overflow(final E target, final TrackingQueue<Runnable> que, final Runnable timed,
+			final Runnable job) {
+		switch (que.getOverflow()) {
+		case BLOCK:
+			if (que.add(timed, que.getBlockMillis()))
+				return true;
+			break;
+		case DROP_OLDEST:
+			// retry a few times in case concurrent producers took the space
+			for (int i = 0; i < 4; i++) {
+				final Runnable oldest = que.take();
+				if (oldest != null)
+					dropped(target, unwrap(oldest), que);
+				if (que.add(timed))
+					return true;
+			}
+			break;
+		default:
+			break;
+		}
+		dropped(target, job, que);
+		return false;
+	}
+
+	/**
+	 * reports an dropped job, without observer at most one log message per
+	 * second
+	 *
+	 * @param target
+	 * @param job
+	 * @param que
+	 */
+	private void dropped(final E target, final Runnable job, final TrackingQueue<Runnable> que) {
+		final IJobObserver<E> lobs = obs;
+		if (lobs != null) {
+			lobs.jobDroped(target, job, que.size());
+			return;
+		}
+		final long now = System.currentTimeMillis();
+		if (now - lastDropMessage < 1000) {
+			dropCounter.incrementAndGet();
+			return;
+		}
+		lastDropMessage = now;
+		LOG.error("Target thread too full droping job [" + target + "][" + que.size() + "][" + dropCounter.getAndSet(0)
+				+ "][" + job + "]");
+	}
+
+	/**
+	 * triggers virtual execution and notifies about the queued job
+	 *
+	 * @param target
+	 * @param que
+	 * @param job
+	 * @return false when the virtual executor rejected the pass
+	 */
+	private boolean added(final E target, final TrackingQueue<Runnable> que, final Runnable job) {
+		final EnumMap<E, VirtualExecutor> lvirtuals = virtuals;
+		final VirtualExecutor vexec = lvirtuals.isEmpty() ? null : lvirtuals.get(target);
+		// one pass per added job, takes whichever job is next in queue
+		if (vexec != null && !vexec.run(() -> {
+			final Runnable next = next(target, 0);
+			if (next != null)
+				runObserved(target, next, null);
+		})) {
+			// shut down, no pass will ever come for one queued job
+			final Runnable stale = que.take();
+			dropped(target, stale != null ? unwrap(stale) : job, que);
 			return false;
-		} else if (obs != null) {
+		}
+		if (obs != null) {
 			if (LOG.isTraceEnabled())
 				LOG.trace("Adding job to que [" + target + "][" + que.size() + "][" + job + "]");
 			obs.jobAdded(target, job);
@@ -123,21 +532,54 @@ public class InterThreads<E extends Enum<E>> extends AbstractInterThreads<E> {
 		return new ExecutionThrottler(run, intervallMs, this, thread);
 	}
 
+	@Override
+	public ExecutionThrottler<E> throttled(final E thread, final Object key, final Runnable run,
+			final int intervallMs) {
+		return new ExecutionThrottler<E>(run, intervallMs, this, thread, key);
+	}
+
 	@Override
 	public ExecutionLimiter limited(final E thread, final Runnable run, final int amount) {
 		return new ExecutionLimiter(run, amount, this, thread);
 	}
 
+	@Override
+	public ExecutionLimiter<E> limited(final E thread, final Object key, final Runnable run, final int amount) {
+		return new ExecutionLimiter<E>(run, amount, this, thread, key);
+	}
+
+	@Override
+	public ExecutionRateLimiter<E> rateLimited(final E thread, final Runnable run, final double rate,
+			final int burst) {
+		return new ExecutionRateLimiter<E>(run, new TokenBucket(rate, burst), this, thread);
+	}
+
+	@Override
+	public ExecutionRateLimiter<E> rateLimited(final E thread, final Runnable run, final TokenBucket bucket) {
+		return new ExecutionRateLimiter<E>(run, bucket, this, thread);
+	}
+
 	@Override
 	public InterThreadScheduledTask<E> runLater(final E thread, final Runnable run, final int timeout) {
 		return tque.runLater(thread, run, timeout);
 	}
 
+	@Override
+	public InterThreadScheduledTask<E> runLater(final E thread, final Runnable run, final int timeout,
+			final int slack) {
+		return tque.runLater(thread, run, timeout, slack);
+	}
+
 	@Override
 	public ScheduledTask runIntervall(final E thread, final Runnable run, final int intervall) {
 		return tque.runIntervall(thread, run, intervall);
 	}
 
+	@Override
+	public ScheduledTask runIntervall(final E thread, final Runnable run, final int intervall, final int slack) {
+		return tque.runIntervall(thread, run, intervall, slack);
+	}
+
 	@Override
 	public ScheduledTask runDelayedIntervall(final E thread, final Runnable run, final int intervall,
 			final int startDelay) {
@@ -0,0 +1,51 @@
+package net.xy.codebase.exec;
+
+import net.xy.codebase.exec.tasks.ITask;
+import net.xy.codebase.exec.tq.IDispatchAffinity;
+import net.xy.codebase.exec.tq.ITaskDispatcher;
+
+/**
+ * dispatches due tasks to inter thread targets, tasks implementing
+ * IDispatchAffinity choose their target themself
+ *
+ * @author Xyan
+ *
+ * @param <E>
+ */
+public class InterThreadsTaskDispatcher<E extends Enum<E>> implements ITaskDispatcher {
+	/**
+	 * target threads
+	 */
+	private final IInterThreads<E> it;
+	/**
+	 * target for tasks without affinity
+	 */
+	private final E defaultTarget;
+
+	/**
+	 * default
+	 *
+	 * @param it
+	 * @param defaultTarget
+	 */
+	public InterThreadsTaskDispatcher(final IInterThreads<E> it, final E defaultTarget) {
+		this.it = it;
+		this.defaultTarget = defaultTarget;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean dispatch(final ITask task, final Runnable job) {
+		E target = null;
+		if (task instanceof IDispatchAffinity)
+			target = ((IDispatchAffinity<E>) task).getDispatchTarget();
+		if (target == null)
+			target = defaultTarget;
+		return it.run(target, job);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("InterThreadsTaskDispatcher [default=%s]", defaultTarget);
+	}
+}
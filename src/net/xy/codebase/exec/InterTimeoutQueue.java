@@ -2,6 +2,7 @@ package net.xy.codebase.exec;
 
 import net.xy.codebase.exec.tasks.InterThreadScheduledTask;
 import net.xy.codebase.exec.tasks.ScheduledTask;
+import net.xy.codebase.exec.tq.ITimeoutStore;
 import net.xy.codebase.exec.tq.TimeoutQueue;
 
 public class InterTimeoutQueue<E extends Enum<E>> extends TimeoutQueue {
@@ -12,13 +13,29 @@ public class InterTimeoutQueue<E extends Enum<E>> extends TimeoutQueue {
 		this.inter = inter;
 	}
 
+	public InterTimeoutQueue(final String name, final IInterThreads<E> inter, final ITimeoutStore store) {
+		super(name, store);
+		this.inter = inter;
+	}
+
 	public InterThreadScheduledTask<E> runLater(final E thread, final Runnable run, final int timeout) {
+		return runLater(thread, run, timeout, 0);
+	}
+
+	public InterThreadScheduledTask<E> runLater(final E thread, final Runnable run, final int timeout,
+			final int slack) {
 		final InterThreadScheduledTask<E> res = new InterThreadScheduledTask<E>(thread, 0, timeout, run, inter);
+		res.setSlack(slack);
 		return add(res) ? res : null;
 	}
 
 	public ScheduledTask runIntervall(final E thread, final Runnable run, final int intervall) {
+		return runIntervall(thread, run, intervall, 0);
+	}
+
+	public ScheduledTask runIntervall(final E thread, final Runnable run, final int intervall, final int slack) {
 		final InterThreadScheduledTask<E> res = new InterThreadScheduledTask<E>(thread, intervall, 0, run, inter);
+		res.setSlack(slack);
 		return add(res) ? res : null;
 	}
 
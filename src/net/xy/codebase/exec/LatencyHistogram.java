@@ -0,0 +1,159 @@
+package net.xy.codebase.exec;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * lock free log linear histogram in the style of HdrHistogram. Values below
+ * 64 get exact buckets, above each power of two is split into 32 linear sub
+ * buckets so percentiles are accurate to about 3%. Recording is one atomic
+ * increment, reading is a racy but consistent enough snapshot.
+ *
+ * @author Xyan
+ *
+ */
+public class LatencyHistogram {
+	/**
+	 * sub bucket bits per power of two
+	 */
+	private static final int SUB_BITS = 5;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	/**
+	 * buckets up to Long.MAX_VALUE
+	 */
+	private static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_COUNT;
+	/**
+	 * counts per bucket
+	 */
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	/**
+	 * amount of recorded values
+	 */
+	private final LongAdder total = new LongAdder();
+	/**
+	 * largest recorded value
+	 */
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * @param value
+	 *            in nanos, negative counts as 0
+	 */
+	public void record(final long value) {
+		final long v = Math.max(value, 0);
+		counts.incrementAndGet(index(v));
+		total.increment();
+		for (;;) {
+			final long m = max.get();
+			if (v <= m || max.compareAndSet(m, v))
+				break;
+		}
+	}
+
+	/**
+	 * @param v
+	 * @return bucket of the value
+	 */
+	private static int index(final long v) {
+		if (v < SUB_COUNT << 1)
+			return (int) v;
+		final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+		return (shift + 1) * SUB_COUNT + (int) (v >>> shift) - SUB_COUNT;
+	}
+
+	/**
+	 * @param idx
+	 * @return highest value of the bucket
+	 */
+	private static long highest(final int idx) {
+		if (idx < SUB_COUNT << 1)
+			return idx;
+		final int shift = idx / SUB_COUNT - 1;
+		final long sub = idx % SUB_COUNT + SUB_COUNT;
+		return (sub + 1 << shift) - 1;
+	}
+
+	/**
+	 * @param quantile
+	 *            between 0 and 1
+	 * @return value at or below which the quantile of all values lies, 0 when
+	 *         empty
+	 */
+	public long getPercentile(final double quantile) {
+		final long count = total.sum();
+		if (count == 0)
+			return 0;
+		final long rank = Math.max(1, (long) Math.ceil(quantile * count));
+		long sum = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			if ((sum += counts.get(i)) >= rank)
+				return Math.min(highest(i), max.get());
+		return max.get();
+	}
+
+	public long getP50() {
+		return getPercentile(0.5d);
+	}
+
+	public long getP99() {
+		return getPercentile(0.99d);
+	}
+
+	public long getP999() {
+		return getPercentile(0.999d);
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public long getCount() {
+		return total.sum();
+	}
+
+	/**
+	 * moves all values recorded so far into a new histogram, each concurrent
+	 * record ends up either in the taken or in this one
+	 *
+	 * @return values since the last take or creation
+	 */
+	public LatencyHistogram takeInterval() {
+		final LatencyHistogram res = new LatencyHistogram();
+		long taken = 0;
+		int top = -1;
+		for (int i = 0; i < BUCKETS; i++) {
+			long c = counts.get(i);
+			if (c != 0 && (c = counts.getAndSet(i, 0)) != 0) {
+				res.counts.set(i, c);
+				taken += c;
+				top = i;
+			}
+		}
+		total.add(-taken);
+		res.total.add(taken);
+		// an racing record may update max after its bucket got taken
+		final long m = max.getAndSet(0);
+		res.max.set(top > 0 ? Math.max(m, highest(top - 1) + 1) : m);
+		return res;
+	}
+
+	/**
+	 * clears all values, not atomic to concurrent records, use takeInterval
+	 * for consistent intervals
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++)
+			counts.set(i, 0);
+		total.reset();
+		max.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("LatencyHistogram [count=%s,p50=%sus,p99=%sus,p999=%sus,max=%sus]", getCount(),
+				TimeUnit.NANOSECONDS.toMicros(getP50()), TimeUnit.NANOSECONDS.toMicros(getP99()),
+				TimeUnit.NANOSECONDS.toMicros(getP999()), TimeUnit.NANOSECONDS.toMicros(getMax()));
+	}
+}
@@ -0,0 +1,26 @@
+package net.xy.codebase.exec;
+
+/**
+ * what InterThreads does with a job when the target queue is full
+ *
+ * @author Xyan
+ *
+ */
+public enum OverflowPolicy {
+	/**
+	 * reject the job and report it as dropped
+	 */
+	DROP,
+	/**
+	 * let the producer wait up to the configured timeout for free space
+	 */
+	BLOCK,
+	/**
+	 * run the job right away in the producing thread
+	 */
+	CALLER_RUNS,
+	/**
+	 * drop the oldest queued job to make room for the new one
+	 */
+	DROP_OLDEST;
+}
@@ -1,5 +1,8 @@
 package net.xy.codebase.exec;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -9,6 +12,22 @@ public class ThreadUtils {
 	private static final Logger LOG = LoggerFactory.getLogger(ThreadUtils.class);
 	private static final long MSInNS = TimeUnit.MILLISECONDS.toNanos(1);
 	private static final long BACKOFF_LIMIT = TimeUnit.SECONDS.toNanos(1);
+	/**
+	 * iterations yieldCAS spins before yielding and backing off
+	 */
+	private static final int CAS_SPINS = 8;
+	/**
+	 * Thread.onSpinWait when available on the running vm
+	 */
+	private static final MethodHandle ON_SPIN_WAIT = findOnSpinWait();
+
+	private static MethodHandle findOnSpinWait() {
+		try {
+			return MethodHandles.lookup().findStatic(Thread.class, "onSpinWait", MethodType.methodType(void.class));
+		} catch (final Exception e) {
+			return null;
+		}
+	}
 
 	public static void sleep(final int milliseconds) {
 		try {
@@ -34,10 +53,27 @@ public class ThreadUtils {
 		Thread.yield();
 	}
 
+	/**
+	 * cpu hint for busy waits, does nothing on vms before 9
+	 */
+	public static void onSpinWait() {
+		if (ON_SPIN_WAIT != null)
+			try {
+				ON_SPIN_WAIT.invokeExact();
+			} catch (final Throwable e) {
+				// not expected for an void no arg method
+			}
+	}
+
 	public static int yieldCAS(final int iteration) {
+		if (iteration < CAS_SPINS) {
+			onSpinWait();
+			return iteration + 1;
+		}
 		// use Binary Exponential Backoff
-		if (iteration > 0) {
-			final int slots = (int) Math.pow(2, iteration);
+		final int exp = iteration - CAS_SPINS;
+		if (exp > 0) {
+			final int slots = 1 << Math.min(exp, 20);
 			final long backoff = randInt(System.nanoTime(), slots);
 			if (backoff > 0) //
 			{
@@ -0,0 +1,104 @@
+package net.xy.codebase.exec;
+
+import net.xy.codebase.collection.IPriority;
+import net.xy.codebase.exec.tasks.ICoveredRunnable;
+
+/**
+ * job capsule remembering when it got enqueued, equals and priority of the
+ * covered job are kept
+ *
+ * @author Xyan
+ *
+ */
+public class TimedRunnable implements Runnable, ICoveredRunnable {
+	/**
+	 * covered job
+	 */
+	private final Runnable runnable;
+	/**
+	 * nanotime of enqueueing
+	 */
+	private final long enqueued;
+
+	/**
+	 * default
+	 *
+	 * @param runnable
+	 * @param enqueued
+	 */
+	public TimedRunnable(final Runnable runnable, final long enqueued) {
+		this.runnable = runnable;
+		this.enqueued = enqueued;
+	}
+
+	/**
+	 * @param job
+	 * @return job stamped with now, keeping its priority
+	 */
+	@SuppressWarnings("unchecked")
+	public static <R extends Runnable & IPriority> TimedRunnable wrap(final Runnable job) {
+		final long now = System.nanoTime();
+		if (job instanceof IPriority)
+			return new PriorityTimedRunnable((R) job, now);
+		return new TimedRunnable(job, now);
+	}
+
+	/**
+	 * @param job
+	 * @return nanos since enqueueing or -1 when not stamped
+	 */
+	public static long waited(final Runnable job) {
+		return job instanceof TimedRunnable ? System.nanoTime() - ((TimedRunnable) job).enqueued : -1;
+	}
+
+	@Override
+	public void run() {
+		runnable.run();
+	}
+
+	@Override
+	public Runnable getRunnable() {
+		return runnable;
+	}
+
+	public long getEnqueued() {
+		return enqueued;
+	}
+
+	@Override
+	public int hashCode() {
+		return runnable.hashCode();
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (obj instanceof TimedRunnable)
+			return runnable.equals(((TimedRunnable) obj).runnable);
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("TimedRunnable [%s]", runnable);
+	}
+
+	/**
+	 * timed capsule with priority
+	 *
+	 * @author Xyan
+	 *
+	 */
+	public static class PriorityTimedRunnable extends TimedRunnable implements IPriority {
+		private final IPriority prio;
+
+		public <R extends Runnable & IPriority> PriorityTimedRunnable(final R runnable, final long enqueued) {
+			super(runnable, enqueued);
+			prio = runnable;
+		}
+
+		@Override
+		public int getPriority() {
+			return prio.getPriority();
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package net.xy.codebase.exec;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * lock free token bucket allowing rate executions per second with bursts up to
+ * burst. The bucket keeps only the theoretical time the next token would be
+ * due, refilling happens implicitly by the passing time so no refill thread or
+ * lock is needed. An optional parent bucket gets charged too, several buckets
+ * sharing one parent share its budget.
+ *
+ * @author Xyan
+ *
+ */
+public class TokenBucket {
+	/**
+	 * nanos per token
+	 */
+	private final long intervalNs;
+	/**
+	 * nanos the due time may be ahead of now, burst * interval
+	 */
+	private final long burstNs;
+	/**
+	 * optional shared budget
+	 */
+	private final TokenBucket parent;
+	/**
+	 * theoretical time all taken tokens are refilled
+	 */
+	private final AtomicLong due;
+
+	/**
+	 * default
+	 *
+	 * @param rate
+	 *            tokens per second
+	 * @param burst
+	 *            maximum tokens taken at once
+	 */
+	public TokenBucket(final double rate, final int burst) {
+		this(rate, burst, null);
+	}
+
+	/**
+	 * charging also the parent
+	 *
+	 * @param rate
+	 * @param burst
+	 * @param parent
+	 *            null for none
+	 */
+	public TokenBucket(final double rate, final int burst, final TokenBucket parent) {
+		if (rate <= 0 || burst < 1)
+			throw new IllegalArgumentException("Rate and burst must be positive [" + rate + "][" + burst + "]");
+		intervalNs = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+		burstNs = intervalNs * burst;
+		this.parent = parent;
+		// starts full
+		due = new AtomicLong(System.nanoTime());
+	}
+
+	/**
+	 * takes one token from this and all parent buckets
+	 *
+	 * @param now
+	 *            nanotime
+	 * @return 0 on success or nanos until the next token may be available
+	 */
+	public long tryAcquire(final long now) {
+		return tryAcquire(now, parent);
+	}
+
+	/**
+	 * takes one token from this bucket and the given parent instead of the
+	 * own one
+	 *
+	 * @param now
+	 *            nanotime
+	 * @param parent
+	 *            null for none
+	 * @return 0 on success or nanos until the next token may be available
+	 */
+	public long tryAcquire(final long now, final TokenBucket parent) {
+		for (;;) {
+			final long ldue = due.get();
+			final long next = Math.max(ldue, now) + intervalNs;
+			final long ahead = next - now - burstNs;
+			if (ahead > 0)
+				return ahead;
+			if (due.compareAndSet(ldue, next))
+				break;
+		}
+		if (parent == null)
+			return 0;
+		final long wait = parent.tryAcquire(now);
+		if (wait > 0)
+			// give back, parent is exhausted
+			due.addAndGet(-intervalNs);
+		return wait;
+	}
+
+	/**
+	 * @param now
+	 * @return nanos until an token of this and all parent buckets may be
+	 *         available
+	 */
+	public long delay(final long now) {
+		return delay(now, parent);
+	}
+
+	/**
+	 * @param now
+	 * @param parent
+	 *            charged instead of the own one, null for none
+	 * @return nanos until an token of this and the given parent may be
+	 *         available
+	 */
+	public long delay(final long now, final TokenBucket parent) {
+		final long own = Math.max(0, Math.max(due.get(), now) + intervalNs - now - burstNs);
+		return parent != null ? Math.max(own, parent.delay(now)) : own;
+	}
+
+	/**
+	 * @param now
+	 * @return tokens currently available in this bucket only
+	 */
+	public int available(final long now) {
+		return (int) ((burstNs - (Math.max(due.get(), now) - now)) / intervalNs);
+	}
+
+	public TokenBucket getParent() {
+		return parent;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("TokenBucket [interval=%s,burst=%s,available=%s,parent=%s]", intervalNs,
+				burstNs / intervalNs, available(System.nanoTime()), parent != null);
+	}
+}
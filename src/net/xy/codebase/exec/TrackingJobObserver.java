@@ -1,26 +1,63 @@
 package net.xy.codebase.exec;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import net.xy.codebase.exec.tasks.ICoveredRunnable;
 
+/**
+ * job observer keeping execution statistics per target and job class. Trackers
+ * get resolved by a class keyed cache holding an array by target ordinal, so
+ * enum targets cost one lookup and one array read per job, counters are
+ * striped adders. Each class tracker links its target aggregate. Covered jobs
+ * need one more lookup for the wrapped class as the wrapper class tells nothing
+ * about it. Other target types fall back to map lookups.
+ *
+ * @author Xyan
+ *
+ * @param <J>
+ *            should be an single enum type, arrays are indexed by ordinal so
+ *            constants of different enums would share trackers
+ */
 public class TrackingJobObserver<J> extends JobObserver<J> {
-	private final Map<J, Map<Class<?>, ExecutionTracker>> exec = new HashMap<J, Map<Class<?>, ExecutionTracker>>();
+	private static final ExecutionTracker[] EMPTY = new ExecutionTracker[0];
+	/**
+	 * registry of all trackers, only written on tracker creation
+	 */
+	private final Map<J, Map<Class<?>, ExecutionTracker>> exec =
+			new ConcurrentHashMap<J, Map<Class<?>, ExecutionTracker>>();
+	/**
+	 * aggregated over all classes per target
+	 */
+	private final Map<J, ExecutionTracker> targets = new ConcurrentHashMap<J, ExecutionTracker>();
+	/**
+	 * per job class trackers by target ordinal
+	 */
+	private final ClassValue<Slot> slots = new ClassValue<Slot>() {
+		@Override
+		protected Slot computeValue(final Class<?> type) {
+			return new Slot(ICoveredRunnable.class.isAssignableFrom(type));
+		}
+	};
 
 	private void trackEnd(final J target, final Runnable res, final long tok) {
-		final Runnable real = getRealRunnable(res);
-
-		final ExecutionTracker trk = getOrCreateTracker(target, real);
+		final ExecutionTracker trk = getOrCreateTracker(target, res);
 		trk.executed(tok);
+		trk.aggregate.executed(tok);
 	}
 
-	private void trackAdd(final J target, final Runnable res) {
-		final Runnable real = getRealRunnable(res);
+	private void trackStart(final J target, final Runnable res, final long waited) {
+		final ExecutionTracker trk = getOrCreateTracker(target, res);
+		trk.started(waited);
+		trk.aggregate.started(waited);
+	}
 
-		final ExecutionTracker trk = getOrCreateTracker(target, real);
-		trk.added();
+	private void trackAdd(final J target, final Runnable res) {
+		getOrCreateTracker(target, res).added();
 	}
 
 	@Override
@@ -29,72 +66,313 @@ public class TrackingJobObserver<J> extends JobObserver<J> {
 		trackAdd(target, job);
 	}
 
+	@Override
+	public boolean isTimingJobs() {
+		return true;
+	}
+
+	@Override
+	public boolean jobStart(final J target, final Runnable job, final IPerfCounter measure) {
+		final long waited = TimedRunnable.waited(job);
+		if (waited >= 0)
+			trackStart(target, job, waited);
+		return super.jobStart(target, job, measure);
+	}
+
 	@Override
 	public void jobEnd(final J target, final Runnable job, final IPerfCounter measure, final long duration) {
 		super.jobEnd(target, job, measure, duration);
 		trackEnd(target, job, duration);
 	}
 
-	private Runnable getRealRunnable(final Runnable res) {
-		Runnable real = res;
-		while (real instanceof ICoveredRunnable) {
+	/**
+	 * @param target
+	 * @return ordinal for array slots or -1
+	 */
+	private static int ordinal(final Object target) {
+		return target instanceof Enum ? ((Enum<?>) target).ordinal() : -1;
+	}
+
+	/**
+	 * @param target
+	 * @param job
+	 *            gets unwrapped only when its class is an covered one
+	 * @return tracker of the real job class
+	 */
+	private ExecutionTracker getOrCreateTracker(final J target, final Runnable job) {
+		Runnable real = job;
+		Slot slot = slots.get(real.getClass());
+		while (slot.covered) {
 			final Runnable next = ((ICoveredRunnable) real).getRunnable();
 			if (next == null)
 				break;
 			real = next;
+			slot = slots.get(real.getClass());
 		}
-		return real;
+		final int ord = ordinal(target);
+		if (ord >= 0) {
+			final ExecutionTracker[] trks = slot.trackers;
+			if (ord < trks.length && trks[ord] != null)
+				return trks[ord];
+		} else {
+			final Map<Class<?>, ExecutionTracker> store = exec.get(target);
+			final ExecutionTracker trk = store != null ? store.get(real.getClass()) : null;
+			if (trk != null)
+				return trk;
+		}
+		return createTracker(target, real.getClass(), slot, ord);
 	}
 
-	private ExecutionTracker getOrCreateTracker(final J target, final Runnable real) {
+	private synchronized ExecutionTracker createTracker(final J target, final Class<?> cc, final Slot slot,
+			final int ord) {
 		Map<Class<?>, ExecutionTracker> store = exec.get(target);
 		if (store == null)
-			synchronized (exec) {
-				store = exec.get(target);
-				if (store == null)
-					exec.put(target, store = new ConcurrentHashMap<Class<?>, TrackingJobObserver.ExecutionTracker>());
-
-			}
-
-		final Class<?> cc = real.getClass();
+			exec.put(target, store = new ConcurrentHashMap<Class<?>, ExecutionTracker>());
 		ExecutionTracker trk = store.get(cc);
+		if (trk == null) {
+			trk = new ExecutionTracker();
+			// linked before publishing
+			trk.aggregate = getOrCreateTargetTracker(target);
+			store.put(cc, trk);
+			trackerCreated(target, cc, trk);
+		}
+		if (ord >= 0)
+			slot.trackers = put(slot.trackers, ord, trk);
+		return trk;
+	}
+
+	/**
+	 * @param target
+	 * @return aggregate tracker, only resolved on class tracker creation
+	 */
+	private synchronized ExecutionTracker getOrCreateTargetTracker(final J target) {
+		ExecutionTracker trk = targets.get(target);
 		if (trk == null)
-			synchronized (store) {
-				trk = store.get(cc);
-				if (trk == null) {
-					store.put(cc, trk = new ExecutionTracker());
-					trackerCreated(target, cc, trk);
-				}
-			}
+			targets.put(target, trk = new ExecutionTracker());
 		return trk;
 	}
 
+	/**
+	 * @param trks
+	 * @param ord
+	 * @param trk
+	 * @return copy with the tracker set at ordinal
+	 */
+	private static ExecutionTracker[] put(final ExecutionTracker[] trks, final int ord, final ExecutionTracker trk) {
+		final ExecutionTracker[] res = Arrays.copyOf(trks, Math.max(trks.length, ord + 1));
+		res[ord] = trk;
+		return res;
+	}
+
+	/**
+	 * @return trackers aggregated per target
+	 */
+	public Map<J, ExecutionTracker> getTargetStats() {
+		return targets;
+	}
+
 	public Map<J, Map<Class<?>, ExecutionTracker>> getStats() {
 		return exec;
 	}
 
+	/**
+	 * deltas of all trackers since the last call, the histograms of the
+	 * trackers get taken over by the snapshots
+	 *
+	 * @return per target and job class
+	 */
+	public Map<J, Map<Class<?>, Snapshot>> snapshot() {
+		final Map<J, Map<Class<?>, Snapshot>> res = new HashMap<J, Map<Class<?>, Snapshot>>();
+		for (final Entry<J, Map<Class<?>, ExecutionTracker>> target : exec.entrySet()) {
+			final Map<Class<?>, Snapshot> classes = new HashMap<Class<?>, Snapshot>();
+			for (final Entry<Class<?>, ExecutionTracker> trk : target.getValue().entrySet())
+				classes.put(trk.getKey(), trk.getValue().snapshot());
+			res.put(target.getKey(), classes);
+		}
+		return res;
+	}
+
+	/**
+	 * deltas of the per target aggregates since the last call, the histograms
+	 * of the trackers get taken over by the snapshots
+	 *
+	 * @return per target
+	 */
+	public Map<J, Snapshot> snapshotTargets() {
+		final Map<J, Snapshot> res = new HashMap<J, Snapshot>();
+		for (final Entry<J, ExecutionTracker> target : targets.entrySet())
+			res.put(target.getKey(), target.getValue().snapshot());
+		return res;
+	}
+
 	protected void trackerCreated(final J target, final Class<?> cc, final ExecutionTracker trk) {
 		// to be overidden
 	}
 
+	/**
+	 * cache entry of a job class
+	 *
+	 * @author Xyan
+	 *
+	 */
+	private static class Slot {
+		/**
+		 * whether jobs of this class wrap the real one
+		 */
+		private final boolean covered;
+		/**
+		 * by target ordinal, copy on write
+		 */
+		private volatile ExecutionTracker[] trackers = EMPTY;
+
+		private Slot(final boolean covered) {
+			this.covered = covered;
+		}
+	}
+
 	public static class ExecutionTracker {
-		public int execAmn;
-		public long execTime;
-		public long lastExec;
-		public long added;
+		private final LongAdder execAmn = new LongAdder();
+		private final LongAdder execTime = new LongAdder();
+		private final LongAdder added = new LongAdder();
+		private volatile long lastExec;
+		/**
+		 * target aggregate, set on creation by the observer
+		 */
+		private ExecutionTracker aggregate;
+		/**
+		 * enqueue to start, since the last snapshot
+		 */
+		public final LatencyHistogram waitHist = new LatencyHistogram();
+		/**
+		 * execution duration, since the last snapshot
+		 */
+		public final LatencyHistogram execHist = new LatencyHistogram();
+		/**
+		 * totals at the last snapshot
+		 */
+		private long lastAmn, lastTime, lastAdded;
 
 		public void executed(final long tok) {
-			execAmn++;
-			execTime += tok;
-			lastExec = System.currentTimeMillis();
+			execAmn.increment();
+			execTime.add(tok);
+			final long now = System.currentTimeMillis();
+			// avoid an shared write per job
+			if (lastExec != now)
+				lastExec = now;
+			execHist.record(tok);
+		}
+
+		public void started(final long waited) {
+			waitHist.record(waited);
 		}
 
 		public void added() {
-			added++;
+			added.increment();
+		}
+
+		public long getExecAmount() {
+			return execAmn.sum();
+		}
+
+		public long getExecTime() {
+			return execTime.sum();
+		}
+
+		public long getAdded() {
+			return added.sum();
+		}
+
+		public long getLastExec() {
+			return lastExec;
+		}
+
+		public float avrNs() {
+			return (float) execTime.sum() / execAmn.sum();
+		}
+
+		/**
+		 * @return deltas since the last snapshot, no counts get lost to
+		 *         concurrent updates. Takes over the histograms.
+		 */
+		public synchronized Snapshot snapshot() {
+			final long amn = execAmn.sum();
+			final long time = execTime.sum();
+			final long add = added.sum();
+			final Snapshot res = new Snapshot(amn - lastAmn, time - lastTime, add - lastAdded,
+					waitHist.takeInterval(), execHist.takeInterval());
+			lastAmn = amn;
+			lastTime = time;
+			lastAdded = add;
+			return res;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("ExecutionTracker [execAmn=%s,execTime=%s,added=%s,wait=%s,exec=%s]", execAmn,
+					execTime, added, waitHist, execHist);
+		}
+	}
+
+	/**
+	 * tracker counts of one interval
+	 *
+	 * @author Xyan
+	 *
+	 */
+	public static class Snapshot {
+		private final long execAmount;
+		private final long execTime;
+		private final long added;
+		/**
+		 * enqueue to start of the interval
+		 */
+		private final LatencyHistogram waitHist;
+		/**
+		 * execution duration of the interval
+		 */
+		private final LatencyHistogram execHist;
+
+		public Snapshot(final long execAmount, final long execTime, final long added) {
+			this(execAmount, execTime, added, new LatencyHistogram(), new LatencyHistogram());
+		}
+
+		public Snapshot(final long execAmount, final long execTime, final long added,
+				final LatencyHistogram waitHist, final LatencyHistogram execHist) {
+			this.execAmount = execAmount;
+			this.execTime = execTime;
+			this.added = added;
+			this.waitHist = waitHist;
+			this.execHist = execHist;
+		}
+
+		public long getExecAmount() {
+			return execAmount;
+		}
+
+		public long getExecTime() {
+			return execTime;
+		}
+
+		public long getAdded() {
+			return added;
+		}
+
+		public LatencyHistogram getWaitHist() {
+			return waitHist;
+		}
+
+		public LatencyHistogram getExecHist() {
+			return execHist;
 		}
 
 		public float avrNs() {
-			return (float) execTime / execAmn;
+			return (float) execTime / execAmount;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Snapshot [execAmn=%s,execTime=%s,added=%s,wait=%s,exec=%s]", execAmount, execTime,
+					added, waitHist, execHist);
 		}
 	}
 }
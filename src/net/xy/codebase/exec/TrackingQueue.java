@@ -1,16 +1,81 @@
 package net.xy.codebase.exec;
 
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import net.xy.codebase.collection.ParkingQueue;
+import net.xy.codebase.concurrent.IWaitStrategy;
+import net.xy.codebase.concurrent.Semaphore;
 
 public class TrackingQueue<E> {
 	private final ParkingQueue<E> que;
 	public final AtomicInteger added = new AtomicInteger(0);
 	public final AtomicInteger removed = new AtomicInteger(0);
+	/**
+	 * slots promised by tryReserve but not yet used by addReserved
+	 */
+	private final AtomicInteger reserved = new AtomicInteger(0);
+	/**
+	 * queued plus reserved elements, claimed before every add
+	 */
+	private final AtomicInteger occupied = new AtomicInteger(0);
+	/**
+	 * signaled on freed slots while producers are blocked
+	 */
+	private final Semaphore space = new Semaphore();
+	/**
+	 * amount of producers waiting for space, takers skip the signal when 0
+	 */
+	private final AtomicInteger blocked = new AtomicInteger();
+	/**
+	 * capacity of the underlying queue, limit for reservations
+	 */
+	private final int capacity;
+	/**
+	 * handling of adds to the full queue
+	 */
+	private volatile OverflowPolicy overflow = OverflowPolicy.DROP;
+	private volatile long blockMillis;
+	/**
+	 * claimed elements given back by an interrupted consumer, taken before the
+	 * queue, created on first hand back
+	 */
+	private volatile ConcurrentLinkedDeque<E> handedBack;
 
 	public TrackingQueue(final ParkingQueue<E> que) {
+		this(que, Integer.MAX_VALUE);
+	}
+
+	public TrackingQueue(final ParkingQueue<E> que, final int capacity) {
 		this.que = que;
+		this.capacity = capacity;
+		occupied.set(que.size());
+	}
+
+	public void setOverflow(final OverflowPolicy overflow, final long blockMillis) {
+		this.overflow = overflow;
+		this.blockMillis = blockMillis;
+	}
+
+	/**
+	 * @return false when only one thread may take
+	 */
+	public boolean isMultiConsumer() {
+		return que.isMultiConsumer();
+	}
+
+	public OverflowPolicy getOverflow() {
+		return overflow;
+	}
+
+	public long getBlockMillis() {
+		return blockMillis;
+	}
+
+	public void setWaitStrategy(final IWaitStrategy waitStrategy) {
+		que.setWaitStrategy(waitStrategy);
 	}
 
 	public void reset() {
@@ -19,27 +84,248 @@ public class TrackingQueue<E> {
 	}
 
 	public E take() {
+		final E back = takeHandedBack();
+		if (back != null)
+			return back;
 		final E res = que.take();
-		if (res != null)
-			removed.decrementAndGet();
+		if (res != null) {
+			removed.incrementAndGet();
+			freed(1);
+		}
 		return res;
 	}
 
 	public E take(final long waitMillis) {
+		final E back = takeHandedBack();
+		if (back != null)
+			return back;
 		final E res = que.take(waitMillis);
-		if (res != null)
-			removed.decrementAndGet();
+		if (res != null) {
+			removed.incrementAndGet();
+			freed(1);
+		}
 		return res;
 	}
 
-	public boolean add(final E elem) {
-		final boolean res = que.add(elem);
-		if (res)
-			added.incrementAndGet();
+	public int drainTo(final Consumer<E> consumer, final int max) {
+		int res = 0;
+		E back;
+		while (res < max && (back = takeHandedBack()) != null) {
+			consumer.accept(back);
+			res++;
+		}
+		final int taken = que.drainTo(consumer, max - res);
+		if (taken > 0) {
+			removed.addAndGet(taken);
+			freed(taken);
+		}
+		return res + taken;
+	}
+
+	/**
+	 * puts claimed but not processed elements back in front of all others in
+	 * their order, without capacity check, observer or overflow handling
+	 *
+	 * @param elems
+	 * @param off
+	 * @param len
+	 */
+	public void handBack(final E[] elems, final int off, final int len) {
+		if (len <= 0)
+			return;
+		ConcurrentLinkedDeque<E> back = handedBack;
+		if (back == null)
+			synchronized (this) {
+				if ((back = handedBack) == null)
+					handedBack = back = new ConcurrentLinkedDeque<E>();
+			}
+		for (int i = off + len - 1; i >= off; i--)
+			back.addFirst(elems[i]);
+		// occupies again without capacity check, it was accepted before
+		occupied.addAndGet(len);
+		removed.addAndGet(-len);
+	}
+
+	/**
+	 * @return next handed back element or null
+	 */
+	private E takeHandedBack() {
+		final ConcurrentLinkedDeque<E> back = handedBack;
+		if (back == null)
+			return null;
+		final E res = back.pollFirst();
+		if (res != null) {
+			removed.incrementAndGet();
+			freed(1);
+		}
 		return res;
 	}
 
+	/**
+	 * @param amount
+	 * @return amount of claimed slots, up to amount
+	 */
+	private int claim(final int amount) {
+		for (;;) {
+			final int occ = occupied.get();
+			final int res = (int) Math.min(amount, (long) capacity - occ);
+			if (res <= 0)
+				return 0;
+			if (occupied.compareAndSet(occ, occ + res))
+				return res;
+		}
+	}
+
+	/**
+	 * gives back claimed slots and wakes producers blocked in add
+	 *
+	 * @param amount
+	 */
+	private void freed(final int amount) {
+		occupied.addAndGet(-amount);
+		if (blocked.get() > 0) {
+			if (amount == 1)
+				space.call();
+			else
+				space.callAll();
+		}
+	}
+
+	public int addAll(final E[] elems, final int off, final int len) {
+		final int claimed = claim(len);
+		if (claimed == 0)
+			return 0;
+		final int res = que.addAll(elems, off, claimed);
+		if (res < claimed)
+			freed(claimed - res);
+		if (res > 0)
+			added.addAndGet(res);
+		return res;
+	}
+
+	/**
+	 * adds without logging on failure, reserved slots count as occupied
+	 *
+	 * @param elem
+	 * @return true on success
+	 */
+	public boolean add(final E elem) {
+		if (claim(1) == 0)
+			return false;
+		if (!que.offer(elem)) {
+			freed(1);
+			return false;
+		}
+		added.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * waits up to waitMillis for space, reserved slots count as occupied
+	 *
+	 * @param elem
+	 * @param waitMillis
+	 *            -1 waits endless
+	 * @return true on success
+	 */
+	public boolean add(final E elem, final long waitMillis) {
+		if (add(elem))
+			return true;
+		if (waitMillis == 0)
+			return false;
+		final long endTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+		// announce before the retry so takers either see us or we see their slot
+		blocked.incrementAndGet();
+		try {
+			for (;;) {
+				final int state = space.getState();
+				if (add(elem))
+					return true;
+				if (waitMillis < 0) {
+					space.await(state);
+					continue;
+				}
+				final long waitTime = endTime - System.nanoTime();
+				if (waitTime <= 0)
+					return false;
+				space.await(state, waitTime);
+			}
+		} finally {
+			blocked.decrementAndGet();
+		}
+	}
+
+	/**
+	 * @param amount
+	 * @return true when the slots got reserved for addReserved
+	 */
+	public boolean tryReserve(final int amount) {
+		for (;;) {
+			final int occ = occupied.get();
+			if ((long) occ + amount > capacity)
+				return false;
+			if (occupied.compareAndSet(occ, occ + amount)) {
+				reserved.addAndGet(amount);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * @param amount
+	 * @return true when that many reservations were held and got taken
+	 */
+	private boolean unreserve(final int amount) {
+		for (;;) {
+			final int res = reserved.get();
+			if (res < amount)
+				return false;
+			if (reserved.compareAndSet(res, res - amount))
+				return true;
+		}
+	}
+
+	/**
+	 * adds into an previously reserved slot
+	 *
+	 * @param elem
+	 * @return true on success, false when no reservation is held
+	 */
+	public boolean addReserved(final E elem) {
+		if (!unreserve(1))
+			return false;
+		if (!que.offer(elem)) {
+			freed(1);
+			return false;
+		}
+		added.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * gives back unused reservations, at most the held ones
+	 *
+	 * @param amount
+	 */
+	public void release(final int amount) {
+		for (;;) {
+			final int res = reserved.get();
+			final int rel = Math.min(amount, res);
+			if (rel <= 0)
+				return;
+			if (reserved.compareAndSet(res, res - rel)) {
+				freed(rel);
+				return;
+			}
+		}
+	}
+
+	public int getReserved() {
+		return reserved.get();
+	}
+
 	public int size() {
-		return que.size();
+		final ConcurrentLinkedDeque<E> back = handedBack;
+		return back == null || back.isEmpty() ? que.size() : que.size() + back.size();
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+package net.xy.codebase.exec.pool;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * scaling controller on backlog signals. Grows when jobs wait longer than the
+ * target or the queue is deeper than the pool, doubling per tick as long as
+ * the throughput follows and by one otherwise. Shrinks only after a whole
+ * window of idle ticks, with cooldowns after each change against flapping.
+ * Without a measured wait it gets estimated by Little's law from queue depth
+ * and throughput.
+ *
+ * @author Xyan
+ *
+ */
+public class AdaptiveScalingPolicy implements IScalingPolicy {
+	/**
+	 * acceptable wait from enqueue to start
+	 */
+	private long targetWaitNanos = TimeUnit.MILLISECONDS.toNanos(5);
+	/**
+	 * utilization below which a tick counts idle
+	 */
+	private double lowUtilization = 0.3d;
+	/**
+	 * consecutive idle ticks before purging
+	 */
+	private int idleWindow = 25;
+	/**
+	 * ticks to wait after growing
+	 */
+	private int growCooldown = 1;
+	/**
+	 * ticks to wait after shrinking
+	 */
+	private int shrinkCooldown = 5;
+
+	private int idleTicks;
+	private int cooldown;
+	private long lastCompleted;
+	private int lastDelta;
+
+	public void setTargetWait(final long targetWaitMs) {
+		targetWaitNanos = TimeUnit.MILLISECONDS.toNanos(targetWaitMs);
+	}
+
+	public void setLowUtilization(final double lowUtilization) {
+		this.lowUtilization = lowUtilization;
+	}
+
+	public void setIdleWindow(final int idleWindow) {
+		this.idleWindow = idleWindow;
+	}
+
+	public void setGrowCooldown(final int growCooldown) {
+		this.growCooldown = growCooldown;
+	}
+
+	public void setShrinkCooldown(final int shrinkCooldown) {
+		this.shrinkCooldown = shrinkCooldown;
+	}
+
+	@Override
+	public int scale(final Stats stats) {
+		final int threads = stats.getThreads();
+		if (threads == 0)
+			return Math.max(1, stats.getCoreAmount());
+		final int depth = stats.getQueueDepth();
+		final long completed = stats.getCompleted();
+		long wait = stats.getWaitNanos();
+		if (wait < 0)
+			// little's law on the backlog
+			wait = depth == 0 ? 0
+					: completed > 0 ? (long) (depth * (double) stats.getTickNanos() / completed) : Long.MAX_VALUE;
+
+		if (cooldown > 0)
+			cooldown--;
+		int delta = 0;
+		if (depth > threads || depth > 0 && wait > targetWaitNanos) {
+			idleTicks = 0;
+			if (cooldown == 0 && threads < stats.getMaxAmount()) {
+				// grown last tick but throughput did not follow, saturated elsewhere
+				final boolean gained = lastDelta <= 0 || completed > lastCompleted + (lastCompleted >> 4);
+				delta = gained ? Math.min(threads, depth) : 1;
+				cooldown = growCooldown;
+			}
+		} else if (depth == 0 && stats.getWorking() < threads * lowUtilization) {
+			if (++idleTicks >= idleWindow && cooldown == 0 && threads > stats.getCoreAmount()) {
+				delta = -Math.max(1, (threads - stats.getCoreAmount()) / 4);
+				// hysteresis, next shrink needs another whole window
+				idleTicks = 0;
+				cooldown = shrinkCooldown;
+			}
+		} else
+			idleTicks = 0;
+		lastCompleted = completed;
+		lastDelta = delta;
+		return delta;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("AdaptiveScalingPolicy [idleTicks=%s,cooldown=%s,lastDelta=%s]", idleTicks, cooldown,
+				lastDelta);
+	}
+}
@@ -1,13 +1,14 @@
 package net.xy.codebase.exec.pool;
 
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.xy.codebase.concurrent.IExecutor;
+import net.xy.codebase.concurrent.IWaitStrategy;
 import net.xy.codebase.concurrent.Semaphore;
-import net.xy.codebase.exec.tasks.ScheduledTask;
 import net.xy.codebase.exec.tq.TimeoutQueue;
 
 public class Executor implements IExecutor {
@@ -21,7 +22,8 @@ public class Executor implements IExecutor {
 
 	private ThreadGroup threadGroup;
 	private final AtomicInteger exitThreads = new AtomicInteger(0);
-	private ScheduledTask threadChecker;
+	private ThreadManager threadChecker;
+	private final LongAdder completed = new LongAdder();
 
 	private final ThreadState working = new ThreadState();
 	private TaskSourceFaccade workerFaccade;
@@ -37,6 +39,44 @@ public class Executor implements IExecutor {
 		defaultWorker = new Worker(workerFaccade);
 	}
 
+	/**
+	 * sets the policy deciding how many threads get added or purged
+	 *
+	 * @param policy
+	 */
+	public void setScalingPolicy(final IScalingPolicy policy) {
+		threadChecker.setPolicy(policy);
+	}
+
+	/**
+	 * @return the thread manager for core and max amounts
+	 */
+	public ThreadManager getThreadManager() {
+		return threadChecker;
+	}
+
+	/**
+	 * switches to an work stealing task source with per worker deques
+	 *
+	 * @param maxCount
+	 *            of jobs added from outside the pool
+	 * @return the source to add jobs to
+	 */
+	public WorkStealingTaskSource setWorkStealing(final int maxCount) {
+		final WorkStealingTaskSource res = new WorkStealingTaskSource(maxCount);
+		setTaskSource(res);
+		return res;
+	}
+
+	/**
+	 * sets how idle workers wait for new jobs, needs an task source
+	 *
+	 * @param waitStrategy
+	 */
+	public void setWaitStrategy(final IWaitStrategy waitStrategy) {
+		workerFaccade.getCondition().setWaitStrategy(waitStrategy);
+	}
+
 	public void setUseThreadGroups(final boolean flag) {
 		if (flag)
 			threadGroup = new ThreadGroup(Thread.currentThread().getThreadGroup().getParent(), name);
@@ -57,6 +97,27 @@ public class Executor implements IExecutor {
 		return working.get();
 	}
 
+	/**
+	 * @return jobs waiting in the task source, 0 when unknown
+	 */
+	public int getQueueDepth() {
+		return workerFaccade != null ? workerFaccade.size() : 0;
+	}
+
+	/**
+	 * @return average job wait since the last call or -1 when unknown
+	 */
+	public long takeWaitNanos() {
+		return workerFaccade != null ? workerFaccade.takeWaitNanos() : -1;
+	}
+
+	/**
+	 * @return jobs completed since the last call
+	 */
+	public long takeCompletedCount() {
+		return completed.sumThenReset();
+	}
+
 	public void addThread() {
 		if (defaultWorker == null)
 			return;
@@ -119,6 +180,22 @@ public class Executor implements IExecutor {
 			return taskSource.getCondition();
 		}
 
+		@Override
+		public void jobDone() {
+			completed.increment();
+			taskSource.jobDone();
+		}
+
+		@Override
+		public int size() {
+			return taskSource.size();
+		}
+
+		@Override
+		public long takeWaitNanos() {
+			return taskSource.takeWaitNanos();
+		}
+
 		public void shutdown() {
 			getCondition().callAll();
 			LOG.info("Calling all executor threads for shutdown[" + name + "]");
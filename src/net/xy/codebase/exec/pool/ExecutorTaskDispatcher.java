@@ -0,0 +1,145 @@
+package net.xy.codebase.exec.pool;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.xy.codebase.collection.MPMCArrayQueue;
+import net.xy.codebase.collection.Queue;
+import net.xy.codebase.concurrent.Semaphore;
+import net.xy.codebase.exec.tasks.ITask;
+import net.xy.codebase.exec.tq.ITaskDispatcher;
+
+/**
+ * dispatches due tasks into an executor pool, gets the executors task source
+ * so the pool grows and shrinks by its thread manager
+ *
+ * @author Xyan
+ *
+ */
+public class ExecutorTaskDispatcher implements ITaskDispatcher, ITaskSource {
+	private static final Logger LOG = LoggerFactory.getLogger(ExecutorTaskDispatcher.class);
+	/**
+	 * minimum millis between two full messages
+	 */
+	private static final long FULL_LOG_INTERVAL = 1000;
+	/**
+	 * target pool
+	 */
+	private final Executor executor;
+	/**
+	 * dispatched jobs
+	 */
+	private final Queue<Pending> jobs;
+	/**
+	 * for idle workers
+	 */
+	private final Semaphore added = new Semaphore();
+	/**
+	 * summed wait of started jobs since last take
+	 */
+	private final LongAdder waitSum = new LongAdder();
+	private final LongAdder waitCount = new LongAdder();
+	/**
+	 * for full logging
+	 */
+	private volatile long lastFullMessage;
+	private final AtomicInteger fullCounter = new AtomicInteger();
+
+	/**
+	 * default
+	 *
+	 * @param executor
+	 *            pool to run the tasks in
+	 * @param maxCount
+	 *            of waiting jobs
+	 */
+	public ExecutorTaskDispatcher(final Executor executor, final int maxCount) {
+		this.executor = executor;
+		jobs = new MPMCArrayQueue<Pending>(Pending.class, maxCount);
+		executor.setTaskSource(this);
+	}
+
+	@Override
+	public boolean dispatch(final ITask task, final Runnable job) {
+		// the thread manager keeps the pool alive, so it stays in the timer
+		if (task instanceof ThreadManager || executor.getThreadCount() == 0)
+			return false;
+		if (!jobs.add(new Pending(job, System.nanoTime()))) {
+			logFull(task);
+			return false;
+		}
+		added.call();
+		return true;
+	}
+
+	/**
+	 * logs inline runs at most once per interval
+	 *
+	 * @param task
+	 */
+	private void logFull(final ITask task) {
+		final long now = System.currentTimeMillis();
+		if (now - lastFullMessage < FULL_LOG_INTERVAL) {
+			fullCounter.incrementAndGet();
+			return;
+		}
+		lastFullMessage = now;
+		LOG.error("Dispatch queue is full running inline [" + fullCounter.getAndSet(0) + "][" + task + "]["
+				+ executor.getName() + "]");
+	}
+
+	@Override
+	public Semaphore getCondition() {
+		return added;
+	}
+
+	@Override
+	public boolean next(final Worker worker) {
+		final Pending pending = jobs.take();
+		if (pending == null)
+			return true;
+		waitSum.add(System.nanoTime() - pending.enqueued);
+		waitCount.increment();
+		return worker.run(pending.job);
+	}
+
+	@Override
+	public long takeWaitNanos() {
+		final long count = waitCount.sumThenReset();
+		final long sum = waitSum.sumThenReset();
+		// no job started in the interval, nothing measured
+		return count > 0 ? sum / count : -1;
+	}
+
+	/**
+	 * @return amount of waiting jobs
+	 */
+	@Override
+	public int size() {
+		return jobs.size();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ExecutorTaskDispatcher [size=%s]", size());
+	}
+
+	/**
+	 * dispatched job with its enqueue time
+	 *
+	 * @author Xyan
+	 *
+	 */
+	private static class Pending {
+		private final Runnable job;
+		private final long enqueued;
+
+		public Pending(final Runnable job, final long enqueued) {
+			this.job = job;
+			this.enqueued = enqueued;
+		}
+	}
+}
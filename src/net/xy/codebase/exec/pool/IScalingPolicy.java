@@ -0,0 +1,116 @@
+package net.xy.codebase.exec.pool;
+
+/**
+ * decides on each thread manager tick how many threads an executor should
+ * add or purge
+ *
+ * @author Xyan
+ *
+ */
+public interface IScalingPolicy {
+	/**
+	 * @param stats
+	 *            of the passed tick
+	 * @return amount of threads to add or when negative to purge, gets bounded
+	 *         by core and max amount
+	 */
+	public int scale(Stats stats);
+
+	/**
+	 * executor measurements of one tick
+	 *
+	 * @author Xyan
+	 *
+	 */
+	public static class Stats {
+		private final int threads;
+		private final int working;
+		private final int coreAmount;
+		private final int maxAmount;
+		private final int queueDepth;
+		private final long waitNanos;
+		private final long completed;
+		private final long tickNanos;
+
+		/**
+		 * default
+		 *
+		 * @param threads
+		 * @param working
+		 * @param coreAmount
+		 * @param maxAmount
+		 * @param queueDepth
+		 * @param waitNanos
+		 * @param completed
+		 * @param tickNanos
+		 */
+		public Stats(final int threads, final int working, final int coreAmount, final int maxAmount,
+				final int queueDepth, final long waitNanos, final long completed, final long tickNanos) {
+			this.threads = threads;
+			this.working = working;
+			this.coreAmount = coreAmount;
+			this.maxAmount = maxAmount;
+			this.queueDepth = queueDepth;
+			this.waitNanos = waitNanos;
+			this.completed = completed;
+			this.tickNanos = tickNanos;
+		}
+
+		/**
+		 * @return current amount of threads
+		 */
+		public int getThreads() {
+			return threads;
+		}
+
+		/**
+		 * @return threads currently busy with jobs
+		 */
+		public int getWorking() {
+			return working;
+		}
+
+		public int getCoreAmount() {
+			return coreAmount;
+		}
+
+		public int getMaxAmount() {
+			return maxAmount;
+		}
+
+		/**
+		 * @return jobs waiting in the task source, 0 when unknown
+		 */
+		public int getQueueDepth() {
+			return queueDepth;
+		}
+
+		/**
+		 * @return average wait from enqueue to start of the jobs started in
+		 *         this tick, -1 when unknown
+		 */
+		public long getWaitNanos() {
+			return waitNanos;
+		}
+
+		/**
+		 * @return jobs completed in this tick
+		 */
+		public long getCompleted() {
+			return completed;
+		}
+
+		/**
+		 * @return length of the tick
+		 */
+		public long getTickNanos() {
+			return tickNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Stats [threads=%s,working=%s,depth=%s,wait=%s,completed=%s]", threads, working,
+					queueDepth, waitNanos, completed);
+		}
+	}
+}
@@ -6,4 +6,29 @@ public interface ITaskSource {
 	public Semaphore getCondition();
 
 	public boolean next(final Worker worker);
+
+	/**
+	 * called by the worker after each job, default wakes the next waiting
+	 * worker
+	 */
+	public default void jobDone() {
+		getCondition().call();
+	}
+
+	/**
+	 * @return amount of waiting jobs, 0 when unknown
+	 */
+	public default int size() {
+		return 0;
+	}
+
+	/**
+	 * average wait from enqueue to start of the jobs started since the last
+	 * call, resets the measurement
+	 *
+	 * @return nanos or -1 when not measured
+	 */
+	public default long takeWaitNanos() {
+		return -1;
+	}
 }
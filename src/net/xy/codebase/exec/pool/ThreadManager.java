@@ -1,5 +1,7 @@
 package net.xy.codebase.exec.pool;
 
+import java.util.concurrent.TimeUnit;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,13 +14,13 @@ public class ThreadManager extends ScheduledTask {
 	private int coreAmount = 2;
 	private int maxAmount = Math.max(coreAmount, Runtime.getRuntime().availableProcessors());
 	private final Executor executor;
-
-	private double workSum;
-	private double count;
+	private final long tickNanos;
+	private volatile IScalingPolicy policy = new UtilizationScalingPolicy();
 
 	public ThreadManager(final int intervallMs, final Executor executor) {
 		super(intervallMs);
 		this.executor = executor;
+		tickNanos = TimeUnit.MILLISECONDS.toNanos(intervallMs);
 	}
 
 	public void setCoreAmount(final int coreAmount) {
@@ -29,28 +31,39 @@ public class ThreadManager extends ScheduledTask {
 		this.maxAmount = maxAmount;
 	}
 
+	/**
+	 * sets the policy deciding about thread additions and purges
+	 *
+	 * @param policy
+	 */
+	public void setPolicy(final IScalingPolicy policy) {
+		this.policy = policy;
+	}
+
 	@Override
 	protected void innerRun() {
-		final double frame = 0.8d;
-		workSum *= frame;
-		count *= frame;
-
 		final int threadCount = executor.getThreadCount();
-		workSum += executor.getWorkingCount() / Math.max(threadCount, 1d);
-		count++;
-
-		final double workAvr = workSum / count;
+		final IScalingPolicy.Stats stats = new IScalingPolicy.Stats(threadCount, executor.getWorkingCount(),
+				coreAmount, maxAmount, executor.getQueueDepth(), executor.takeWaitNanos(),
+				executor.takeCompletedCount(), tickNanos);
+		int delta = policy.scale(stats);
 		if (LOG.isDebugEnabled())
-			LOG.debug("Executor stat [" + workAvr + "][" + executor.getName() + "]");
+			LOG.debug("Executor stat [" + stats + "][" + delta + "][" + executor.getName() + "]");
 
-		if (threadCount == 0 || threadCount < maxAmount && workAvr > 0.8f)
-			executor.addThread();
-		else if (threadCount > coreAmount && workAvr < 0.2f)
-			executor.purgeThread();
+		if (delta > 0) {
+			// an empty pool always gets one thread
+			delta = Math.min(delta, Math.max(maxAmount - threadCount, threadCount > 0 ? 0 : 1));
+			for (int i = 0; i < delta; i++)
+				executor.addThread();
+		} else if (delta < 0) {
+			delta = Math.max(delta, coreAmount - threadCount);
+			for (int i = 0; i > delta; i--)
+				executor.purgeThread();
+		}
 	}
 
 	@Override
 	public String toString() {
-		return String.format("ThreadManager [workSum=%s,count=%s,%s,%s]", workSum, count, executor, toStringSuper());
+		return String.format("ThreadManager [%s,%s,%s]", policy, executor, toStringSuper());
 	}
 }
@@ -0,0 +1,36 @@
+package net.xy.codebase.exec.pool;
+
+/**
+ * classic policy on the smoothed ratio of working threads, adds one thread
+ * above 0.8 and purges one below 0.2
+ *
+ * @author Xyan
+ *
+ */
+public class UtilizationScalingPolicy implements IScalingPolicy {
+	private double workSum;
+	private double count;
+
+	@Override
+	public int scale(final Stats stats) {
+		final double frame = 0.8d;
+		workSum *= frame;
+		count *= frame;
+
+		final int threadCount = stats.getThreads();
+		workSum += stats.getWorking() / Math.max(threadCount, 1d);
+		count++;
+
+		final double workAvr = workSum / count;
+		if (threadCount == 0 || threadCount < stats.getMaxAmount() && workAvr > 0.8f)
+			return 1;
+		else if (threadCount > stats.getCoreAmount() && workAvr < 0.2f)
+			return -1;
+		return 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("UtilizationScalingPolicy [workSum=%s,count=%s]", workSum, count);
+	}
+}
@@ -0,0 +1,189 @@
+package net.xy.codebase.exec.pool;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.xy.codebase.collection.LinkedArrayQueue;
+import net.xy.codebase.collection.Queue;
+import net.xy.codebase.concurrent.IExecutor;
+import net.xy.codebase.concurrent.ITaskMonitor;
+
+/**
+ * executor running each job on its own virtual thread, so blocking jobs cost
+ * memory instead of os threads. Concurrency gets bounded by an optional task
+ * monitor, jobs over the limit wait in order until a running one finishes.
+ * Virtual threads get looked up at runtime, on vms before 21 it falls back to
+ * one platform daemon thread per job.
+ *
+ * @author Xyan
+ *
+ */
+public class VirtualExecutor implements IExecutor {
+	private static final Logger LOG = LoggerFactory.getLogger(VirtualExecutor.class);
+	/**
+	 * unique name of this instance
+	 */
+	private final String name;
+	/**
+	 * virtual or fallback platform thread factory
+	 */
+	private final ThreadFactory factory;
+	/**
+	 * optional concurrency limit
+	 */
+	private final ITaskMonitor monitor;
+	/**
+	 * jobs waiting for a free slot of the monitor
+	 */
+	private final Queue<Runnable> pending = new LinkedArrayQueue<Runnable>(Runnable.class, Integer.MAX_VALUE);
+	/**
+	 * running jobs
+	 */
+	private final AtomicInteger running = new AtomicInteger();
+	/**
+	 * for thread naming in fallback mode
+	 */
+	private final AtomicInteger threadId = new AtomicInteger();
+	private volatile boolean shutdown;
+
+	/**
+	 * without concurrency limit
+	 *
+	 * @param name
+	 */
+	public VirtualExecutor(final String name) {
+		this(name, null);
+	}
+
+	/**
+	 * @param name
+	 * @param monitor
+	 *            bounds the concurrent jobs, e.g. TaskMonitor with maxRunning
+	 */
+	public VirtualExecutor(final String name, final ITaskMonitor monitor) {
+		this.name = name;
+		this.monitor = monitor;
+		final ThreadFactory virtual = virtualFactory(name);
+		if (virtual != null)
+			factory = virtual;
+		else {
+			LOG.info("Virtual threads not available falling back to platform threads [" + name + "]");
+			factory = r -> {
+				final Thread th = new Thread(r, name + "-" + threadId.incrementAndGet());
+				th.setDaemon(true);
+				return th;
+			};
+		}
+	}
+
+	/**
+	 * @param name
+	 * @return virtual thread factory or null before java 21
+	 */
+	private static ThreadFactory virtualFactory(final String name) {
+		try {
+			final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			final Class<?> clazz = Class.forName("java.lang.Thread$Builder");
+			final Object named = clazz.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+			return (ThreadFactory) clazz.getMethod("factory").invoke(named);
+		} catch (final Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return true when jobs run on virtual threads
+	 */
+	public static boolean isVirtualAvailable() {
+		return virtualFactory("probe") != null;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * runs the job on a new thread or queues it when the monitor is exhausted
+	 *
+	 * @param job
+	 * @return false when already shut down
+	 */
+	public boolean run(final Runnable job) {
+		if (shutdown)
+			return false;
+		if (monitor == null) {
+			start(job);
+			return true;
+		}
+		pending.add(job);
+		schedule();
+		return true;
+	}
+
+	/**
+	 * starts pending jobs as long as the monitor allows
+	 */
+	private void schedule() {
+		while (!pending.isEmpty() && monitor.aquiere()) {
+			final Runnable job = pending.take();
+			if (job == null) {
+				// taken concurrently, give the slot back
+				monitor.finished();
+				continue;
+			}
+			start(job);
+		}
+	}
+
+	/**
+	 * @param job
+	 */
+	private void start(final Runnable job) {
+		running.incrementAndGet();
+		factory.newThread(() -> {
+			try {
+				job.run();
+			} catch (final Exception e) {
+				LOG.error("Error running job [" + job + "][" + name + "]", e);
+			} finally {
+				running.decrementAndGet();
+				if (monitor != null) {
+					monitor.finished();
+					schedule();
+				}
+			}
+		}).start();
+	}
+
+	/**
+	 * @return amount of jobs waiting for the monitor
+	 */
+	public int getPendingCount() {
+		return pending.size();
+	}
+
+	@Override
+	public int getThreadCount() {
+		return running.get();
+	}
+
+	@Override
+	public void prepareSutdown() {
+		shutdown = true;
+	}
+
+	@Override
+	public void shutdown() {
+		shutdown = true;
+		if (!pending.isEmpty())
+			LOG.info("Shutdown of executor with pending jobs [" + pending.size() + "][" + name + "]");
+	}
+
+	@Override
+	public String toString() {
+		return String.format("VirtualExecutor [name=%s,running=%s,pending=%s]", name, running.get(), pending.size());
+	}
+}
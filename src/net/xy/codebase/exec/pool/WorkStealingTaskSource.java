@@ -0,0 +1,212 @@
+package net.xy.codebase.exec.pool;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.xy.codebase.collection.LinkedArrayQueue;
+import net.xy.codebase.collection.Queue;
+import net.xy.codebase.collection.WorkStealingDeque;
+import net.xy.codebase.concurrent.Semaphore;
+
+/**
+ * work stealing task source. Each worker thread owns a deque, jobs added from
+ * a worker go into its own deque and jobs from outside into a shared inbox.
+ * Workers run their own jobs first, then the inbox and then steal from a
+ * random victim. Idle workers announce themself and get only signaled when
+ * there is work, finished jobs wake nobody.
+ *
+ * @author Xyan
+ *
+ */
+public class WorkStealingTaskSource implements ITaskSource {
+	private static final Logger LOG = LoggerFactory.getLogger(WorkStealingTaskSource.class);
+	/**
+	 * jobs run per next call before giving the executor a chance to purge
+	 */
+	private static final int BATCH_SIZE = 64;
+	/**
+	 * initial capacity of the worker deques
+	 */
+	private static final int DEQUE_SIZE = 256;
+	/**
+	 * for idle workers
+	 */
+	private final Semaphore added = new Semaphore();
+	/**
+	 * jobs added from outside the pool
+	 */
+	private final Queue<Runnable> inbox;
+	/**
+	 * deque of the current worker thread
+	 */
+	private final ThreadLocal<Local> local = new ThreadLocal<Local>();
+	/**
+	 * all worker deques, copy on write
+	 */
+	private volatile Local[] locals = new Local[0];
+	/**
+	 * amount of workers announced idle
+	 */
+	private final AtomicInteger idle = new AtomicInteger();
+
+	/**
+	 * default
+	 *
+	 * @param maxCount
+	 *            of jobs in the shared inbox
+	 */
+	public WorkStealingTaskSource(final int maxCount) {
+		inbox = new LinkedArrayQueue<Runnable>(Runnable.class, maxCount);
+	}
+
+	/**
+	 * adds an job, to the own deque when called from a worker
+	 *
+	 * @param job
+	 * @return false when the inbox is full
+	 */
+	public boolean run(final Runnable job) {
+		final Local l = local.get();
+		if (l != null)
+			l.deque.push(job);
+		else if (!inbox.add(job)) {
+			LOG.error("Work stealing inbox is full droping [" + job + "][" + inbox.size() + "]");
+			return false;
+		}
+		if (idle.get() > 0)
+			added.call();
+		return true;
+	}
+
+	@Override
+	public Semaphore getCondition() {
+		return added;
+	}
+
+	@Override
+	public boolean next(final Worker worker) {
+		Local l = local.get();
+		if (l == null)
+			l = register();
+		if (l.idle) {
+			l.idle = false;
+			idle.decrementAndGet();
+		}
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			Runnable job = find(l);
+			if (job == null) {
+				l.idle = true;
+				idle.incrementAndGet();
+				// recheck, an adder could have missed the announcement
+				if ((job = find(l)) == null)
+					return true;
+				l.idle = false;
+				idle.decrementAndGet();
+			}
+			worker.run(job);
+		}
+		// batch done, keep the worker from parking
+		added.call();
+		return true;
+	}
+
+	@Override
+	public void jobDone() {
+		// nobody to wake, workers loop on their own
+	}
+
+	/**
+	 * @param l
+	 * @return next job of the own deque, the inbox or a victim
+	 */
+	private Runnable find(final Local l) {
+		Runnable job = l.deque.pop();
+		if (job == null)
+			job = inbox.take();
+		if (job == null)
+			job = steal(l);
+		return job;
+	}
+
+	/**
+	 * @param l
+	 * @return job of the first victim with work starting at a random one
+	 */
+	private Runnable steal(final Local l) {
+		final Local[] ls = locals;
+		final int len = ls.length;
+		if (len < 2)
+			return null;
+		final int start = ThreadLocalRandom.current().nextInt(len);
+		for (int i = 0; i < len; i++) {
+			final Local victim = ls[(start + i) % len];
+			if (victim == l)
+				continue;
+			final Runnable job = victim.deque.steal();
+			if (job != null)
+				return job;
+		}
+		return null;
+	}
+
+	/**
+	 * adds the current thread as worker and drops empty deques of dead ones
+	 *
+	 * @return
+	 */
+	private synchronized Local register() {
+		final Local l = new Local(Thread.currentThread());
+		final Local[] ls = locals;
+		final Local[] nls = new Local[ls.length + 1];
+		int count = 0;
+		for (final Local other : ls)
+			if (other.owner.isAlive() || !other.deque.isEmpty())
+				nls[count++] = other;
+			else if (other.idle)
+				idle.decrementAndGet();
+		nls[count++] = l;
+		locals = Arrays.copyOf(nls, count);
+		local.set(l);
+		return l;
+	}
+
+	/**
+	 * @return approximate amount of waiting jobs
+	 */
+	@Override
+	public int size() {
+		int res = inbox.size();
+		for (final Local l : locals)
+			res += l.deque.size();
+		return res;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("WorkStealingTaskSource [size=%s,workers=%s,idle=%s]", size(), locals.length,
+				idle.get());
+	}
+
+	/**
+	 * per worker state
+	 *
+	 * @author Xyan
+	 *
+	 */
+	private static class Local {
+		private final Thread owner;
+		private final WorkStealingDeque<Runnable> deque = new WorkStealingDeque<Runnable>(DEQUE_SIZE);
+		/**
+		 * counted in idle, only touched by the owner and under registration
+		 */
+		private volatile boolean idle;
+
+		public Local(final Thread owner) {
+			this.owner = owner;
+		}
+	}
+}
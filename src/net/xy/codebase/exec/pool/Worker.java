@@ -42,7 +42,7 @@ public class Worker implements Runnable {
 			LOG.error("Error running job [" + job + "][" + Thread.currentThread().getName() + "]", e);
 		} finally {
 			// loop again if i got a job
-			executor.getCondition().call();
+			executor.jobDone();
 		}
 		return true;
 	}
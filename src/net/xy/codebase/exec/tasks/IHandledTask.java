@@ -0,0 +1,21 @@
+package net.xy.codebase.exec.tasks;
+
+/**
+ * task which keeps the handle of its timeout store entry, enables O(1)
+ * cancellation and rescheduling in place
+ *
+ * @author Xyan
+ *
+ */
+public interface IHandledTask extends ITask {
+	/**
+	 * @return store specific entry handle or null when not queued
+	 */
+	public Object getHandle();
+
+	/**
+	 * @param handle
+	 *            store specific entry handle, null on removal
+	 */
+	public void setHandle(Object handle);
+}
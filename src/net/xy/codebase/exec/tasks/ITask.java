@@ -33,4 +33,14 @@ public interface ITask extends Runnable {
 	 * @param executed
 	 */
 	public long nextRunFixed();
-}
\ No newline at end of file
+
+	/**
+	 * allowed lateness after the next run, lets the timer fire tasks with
+	 * overlapping windows in one wakeup
+	 *
+	 * @return slack in nanos
+	 */
+	public default long getSlack() {
+		return 0;
+	}
+}
\ No newline at end of file
@@ -15,6 +15,10 @@ public class InterThreadScheduledTask<E extends Enum<E>> extends ScheduledTaskAd
 	 * back reference
 	 */
 	private IInterThreads<E> it;
+	/**
+	 * optional key for keyed targets
+	 */
+	private Object key;
 
 	/**
 	 * default
@@ -43,11 +47,23 @@ public class InterThreadScheduledTask<E extends Enum<E>> extends ScheduledTaskAd
 		this.it = it;
 	}
 
+	/**
+	 * runs in the stripe of the key
+	 *
+	 * @param key
+	 */
+	public void setKey(final Object key) {
+		this.key = key;
+	}
+
 	@Override
 	protected final void innerRun() {
 		if (LOG.isTraceEnabled())
 			LOG.trace("Running via executor " + this);
-		it.run(thread, getRunnable());
+		if (key != null)
+			it.run(thread, key, getRunnable());
+		else
+			it.run(thread, getRunnable());
 	}
 
 	@Override
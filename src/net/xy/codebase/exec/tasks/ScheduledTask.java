@@ -7,13 +7,15 @@ import org.slf4j.LoggerFactory;
 
 import net.xy.codebase.exec.tq.TimeoutQueue;
 
-public abstract class ScheduledTask implements ITask {
+public abstract class ScheduledTask implements IHandledTask {
 	private static final Logger LOG = LoggerFactory.getLogger(ScheduledTask.class);
 	private final long intervall;
-	private long next;
-	private long nextFixed = Long.MIN_VALUE;
+	private volatile long next;
+	private volatile long nextFixed = Long.MIN_VALUE;
 	private volatile boolean stoped = false;
-	private TimeoutQueue tq;
+	private volatile TimeoutQueue tq;
+	private volatile Object handle;
+	private volatile long slack;
 
 	public ScheduledTask(final long intervallMs) {
 		this(intervallMs, 0);
@@ -48,27 +50,55 @@ public abstract class ScheduledTask implements ITask {
 			LOG.error("Error removed task gots removed again [" + this + "]", new Exception());
 	}
 
+	@Override
+	public Object getHandle() {
+		return handle;
+	}
+
+	@Override
+	public void setHandle(final Object handle) {
+		this.handle = handle;
+	}
+
+	@Override
+	public long getSlack() {
+		return slack;
+	}
+
+	/**
+	 * allows the task to fire up to slack later, so the timer can coalesce it
+	 * with other tasks into one wakeup. Applies on the next queue insertion.
+	 *
+	 * @param slackMs
+	 */
+	public void setSlack(final long slackMs) {
+		slack = TimeUnit.MILLISECONDS.toNanos(slackMs);
+	}
+
 	@Override
 	public long nextRun() {
 		return isStoped() ? 0 : next;
 	}
 
 	/**
-	 * set next execution time by offset to now
+	 * set next execution time by offset to now, moves the task when queued
 	 *
 	 * @param timeoutMs offset to now
 	 */
 	public void setNextOffset(final long timeoutMs) {
-		next = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+		setNextTime(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
 	}
 
 	/**
-	 * set absolute next execution time
+	 * set absolute next execution time, moves the task when queued
 	 *
 	 * @param timeNanos
 	 */
 	public void setNextTime(final long timeNanos) {
 		next = timeNanos;
+		final TimeoutQueue q = tq;
+		if (q != null && nextFixed != Long.MIN_VALUE && nextFixed != timeNanos)
+			q.reschedule(this);
 	}
 
 	@Override
@@ -88,8 +118,17 @@ public abstract class ScheduledTask implements ITask {
 
 	protected abstract void innerRun();
 
+	/**
+	 * stops and removes the task from its queue
+	 *
+	 * @return true when state changed
+	 */
 	public boolean stop() {
-		return setStop(true);
+		final boolean res = setStop(true);
+		final TimeoutQueue q = tq;
+		if (q != null)
+			q.cancel(this);
+		return res;
 	}
 
 	public boolean setStop(final boolean flag) {
@@ -0,0 +1,157 @@
+package net.xy.codebase.exec.tq;
+
+import java.util.Arrays;
+
+import net.xy.codebase.exec.tasks.IHandledTask;
+import net.xy.codebase.exec.tasks.ITask;
+
+/**
+ * indexed binary heap store ordered by the latest allowed run, O(log n) add,
+ * poll and remove. Entries know their heap position so handled tasks get
+ * removed without search. Like hrtimers the timer wakes at the first hard
+ * deadline and fires every task at the head whose window already started, so
+ * tasks with slack get coalesced into one wakeup.
+ *
+ * @author Xyan
+ *
+ */
+public class HeapTimeoutStore implements ITimeoutStore {
+	/**
+	 * heap array, smallest hard deadline at 0
+	 */
+	private Entry[] heap = new Entry[128];
+	/**
+	 * amount of contained tasks
+	 */
+	private volatile int size;
+
+	@Override
+	public synchronized boolean add(final ITask t) {
+		if (size == heap.length)
+			heap = Arrays.copyOf(heap, size * 2);
+		final long soft = t.nextRunFixed();
+		final Entry e = new Entry(t, soft, soft + Math.max(t.getSlack(), 0));
+		if (t instanceof IHandledTask)
+			((IHandledTask) t).setHandle(e);
+		siftUp(size++, e);
+		return true;
+	}
+
+	@Override
+	public synchronized ITask poll(final long now) {
+		if (size == 0 || heap[0].soft - now > 0)
+			return null;
+		final Entry e = heap[0];
+		removeAt(0);
+		return e.task;
+	}
+
+	@Override
+	public synchronized boolean remove(final ITask t) {
+		int idx = -1;
+		if (t instanceof IHandledTask) {
+			final Object handle = ((IHandledTask) t).getHandle();
+			if (handle instanceof Entry && ((Entry) handle).index < size && heap[((Entry) handle).index] == handle)
+				idx = ((Entry) handle).index;
+		} else
+			for (int i = 0; i < size; i++)
+				if (heap[i].task == t) {
+					idx = i;
+					break;
+				}
+		if (idx < 0)
+			return false;
+		removeAt(idx);
+		return true;
+	}
+
+	@Override
+	public synchronized long nextRun() {
+		return size > 0 ? heap[0].key : Long.MAX_VALUE;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param idx
+	 */
+	private void removeAt(final int idx) {
+		final Entry removed = heap[idx];
+		final int last = --size;
+		final Entry moved = heap[last];
+		heap[last] = null;
+		if (idx != last) {
+			siftDown(idx, moved);
+			if (heap[idx] == moved)
+				siftUp(idx, moved);
+		}
+		removed.index = -1;
+		if (removed.task instanceof IHandledTask)
+			((IHandledTask) removed.task).setHandle(null);
+	}
+
+	private void siftUp(int idx, final Entry e) {
+		while (idx > 0) {
+			final int parent = idx - 1 >>> 1;
+			final Entry p = heap[parent];
+			if (e.key - p.key >= 0)
+				break;
+			set(idx, p);
+			idx = parent;
+		}
+		set(idx, e);
+	}
+
+	private void siftDown(int idx, final Entry e) {
+		final int half = size >>> 1;
+		while (idx < half) {
+			int child = (idx << 1) + 1;
+			final int right = child + 1;
+			if (right < size && heap[right].key - heap[child].key < 0)
+				child = right;
+			if (e.key - heap[child].key <= 0)
+				break;
+			set(idx, heap[child]);
+			idx = child;
+		}
+		set(idx, e);
+	}
+
+	private void set(final int idx, final Entry e) {
+		heap[idx] = e;
+		e.index = idx;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("HeapTimeoutStore [size=%s]", size());
+	}
+
+	/**
+	 * heap entry, doubles as task handle
+	 *
+	 * @author Xyan
+	 *
+	 */
+	private static class Entry {
+		private final ITask task;
+		/**
+		 * earliest run
+		 */
+		private final long soft;
+		/**
+		 * latest run, the heap order
+		 */
+		private final long key;
+		private int index;
+
+		public Entry(final ITask task, final long soft, final long key) {
+			this.task = task;
+			this.soft = soft;
+			this.key = key;
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package net.xy.codebase.exec.tq;
+
+/**
+ * implemented by tasks which have to run on an specific dispatch target
+ *
+ * @author Xyan
+ *
+ * @param <E>
+ *            target type of the dispatcher
+ */
+public interface IDispatchAffinity<E> {
+	/**
+	 * @return target to run on or null for the dispatchers default
+	 */
+	public E getDispatchTarget();
+}
@@ -0,0 +1,22 @@
+package net.xy.codebase.exec.tq;
+
+import net.xy.codebase.exec.tasks.ITask;
+
+/**
+ * hands due tasks of an timer thread over to other threads for execution so
+ * the timer only detects expiry and slow tasks don't delay others
+ *
+ * @author Xyan
+ *
+ */
+public interface ITaskDispatcher {
+	/**
+	 * @param task
+	 *            the due task
+	 * @param job
+	 *            observed run of the task to execute
+	 * @return false when rejected or the task should not leave the timer, the
+	 *         timer runs the job inline then
+	 */
+	public boolean dispatch(ITask task, Runnable job);
+}
@@ -0,0 +1,49 @@
+package net.xy.codebase.exec.tq;
+
+import net.xy.codebase.exec.tasks.ITask;
+
+/**
+ * storage engine of a timeout queue. Tasks get added and removed from any
+ * thread, all other methods except size are only called from the timer thread.
+ *
+ * @author Xyan
+ *
+ */
+public interface ITimeoutStore {
+	/**
+	 * adds an task with its already fixed next run
+	 *
+	 * @param t
+	 * @return true on success
+	 */
+	public boolean add(ITask t);
+
+	/**
+	 * removes an queued task before its expiry, O(1) or O(log n) for tasks
+	 * implementing IHandledTask
+	 *
+	 * @param t
+	 * @return true when the task was queued and is removed now
+	 */
+	public boolean remove(ITask t);
+
+	/**
+	 * removes and returns the next task due at now
+	 *
+	 * @param now
+	 *            in nanotime
+	 * @return null when no task is due
+	 */
+	public ITask poll(long now);
+
+	/**
+	 * @return nanotime the timer should wake up at latest, Long.MAX_VALUE when
+	 *         empty and Long.MIN_VALUE when an task is already due
+	 */
+	public long nextRun();
+
+	/**
+	 * @return amount of contained tasks
+	 */
+	public int size();
+}
@@ -1,6 +1,5 @@
 package net.xy.codebase.exec.tq;
 
-import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -25,9 +24,9 @@ public class QueueTimerThread extends ThreadExtended {
 	 */
 	public static AtomicInteger COUNTER = new AtomicInteger();
 	/**
-	 * ref to parent queue
+	 * ref to parent queues store
 	 */
-	private PriorityBlockingQueue<ITask> queue;
+	private ITimeoutStore store;
 	/**
 	 * back reference to the surrounding TimeoutQueue for task add purpose
 	 */
@@ -48,6 +47,10 @@ public class QueueTimerThread extends ThreadExtended {
 	 * observer
 	 */
 	private IQueueObserver obs;
+	/**
+	 * optional dispatcher, tasks run inline when not set
+	 */
+	private volatile ITaskDispatcher dispatcher;
 
 	/**
 	 * to get post initialized by extern queue
@@ -74,12 +77,22 @@ public class QueueTimerThread extends ThreadExtended {
 	}
 
 	/**
-	 * relocates to antoher queue
+	 * lets due tasks run by the dispatcher instead of inline in this thread
+	 *
+	 * @param dispatcher
+	 *            null to run inline
+	 */
+	public void setDispatcher(final ITaskDispatcher dispatcher) {
+		this.dispatcher = dispatcher;
+	}
+
+	/**
+	 * relocates to antoher queue store
 	 *
-	 * @param queue
+	 * @param store
 	 */
-	public void setQueue(final PriorityBlockingQueue<ITask> queue) {
-		this.queue = queue;
+	public void setStore(final ITimeoutStore store) {
+		this.store = store;
 	}
 
 	/**
@@ -93,23 +106,29 @@ public class QueueTimerThread extends ThreadExtended {
 
 	@Override
 	public void run() {
-		final PriorityBlockingQueue<ITask> q = queue;
+		final ITimeoutStore q = store;
 		ITask nt = null;
 		while (isRunning())
 			try {
 				final int state = added.getState();
-				if ((nt = q.poll()) == null) {
-					added.await(state);
+				final long now = System.nanoTime();
+				if ((nt = q.poll(now)) == null) {
+					final long next = q.nextRun();
+					if (next == Long.MIN_VALUE)
+						// already due, poll again
+						continue;
+					else if (next == Long.MAX_VALUE)
+						added.await(state);
+					else if (next - now > 0)
+						added.await(state, next - now);
 					continue;
 				}
 				nt.leaveQueue();
 
 				final long nextRun = nt.nextRun();
 				long wns = 0;
-				if (nextRun > 0 && (wns = nextRun - System.nanoTime()) > 0l) {
-					// first wait time to first task
-					added.await(state, wns);
-					// than add again to repeat
+				if (nextRun > 0 && (wns = nextRun - now) > 0l) {
+					// moved to later, add again to repeat
 					timeoutQueue.add(nt);
 					continue;
 				}
@@ -133,7 +152,14 @@ public class QueueTimerThread extends ThreadExtended {
 	 * @return null on success or the new queue head
 	 */
 	private void timedOut(final ITask nt, final long wns) {
-		run(nt, wns);
+		final ITaskDispatcher disp = dispatcher;
+		if (disp != null) {
+			final long dispatched = System.nanoTime();
+			// latency includes the time waiting in the dispatcher
+			if (!disp.dispatch(nt, () -> run(nt, wns - (System.nanoTime() - dispatched))))
+				run(nt, wns);
+		} else
+			run(nt, wns);
 		if (!running && System.currentTimeMillis() > stopedAt + TimeUnit.SECONDS.toMillis(10))
 			LOG.info("QueueTimer is shutting down and executes [" + nt + "][" + getName() + "]");
 	}
@@ -172,6 +198,6 @@ public class QueueTimerThread extends ThreadExtended {
 	 * @return while loop is active
 	 */
 	public boolean isRunning() {
-		return running || queue.size() > 0;
+		return running || store.size() > 0;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
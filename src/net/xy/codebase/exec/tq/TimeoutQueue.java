@@ -1,12 +1,12 @@
 package net.xy.codebase.exec.tq;
 
-import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.xy.codebase.asserts.Assert;
+import net.xy.codebase.concurrent.IWaitStrategy;
 import net.xy.codebase.concurrent.Semaphore;
 import net.xy.codebase.exec.tasks.ITask;
 
@@ -24,9 +24,9 @@ public class TimeoutQueue {
 	 */
 	public static AtomicInteger COUNTER = new AtomicInteger();
 	/**
-	 * ordered task queue
+	 * ordered task store
 	 */
-	private final PriorityBlockingQueue<ITask> queue;
+	private final ITimeoutStore queue;
 	/**
 	 * timer thread
 	 */
@@ -55,15 +55,36 @@ public class TimeoutQueue {
 		this(new QueueTimerThread(name), name);
 	}
 
+	/**
+	 * with given store, e.g. an TimingWheelTimeoutStore for many timers
+	 *
+	 * @param name
+	 * @param store
+	 */
+	public TimeoutQueue(final String name, final ITimeoutStore store) {
+		this(new QueueTimerThread(name), name, store);
+	}
+
 	/**
 	 * for external provided thread
 	 *
 	 * @param thread
 	 */
 	public TimeoutQueue(final QueueTimerThread thread, final String name) {
+		this(thread, name, new HeapTimeoutStore());
+	}
+
+	/**
+	 * for external provided thread and store
+	 *
+	 * @param thread
+	 * @param name
+	 * @param store
+	 */
+	public TimeoutQueue(final QueueTimerThread thread, final String name, final ITimeoutStore store) {
 		this.name = name + " " + TimeoutQueue.class.getSimpleName() + "-" + COUNTER.incrementAndGet();
-		queue = new PriorityBlockingQueue<ITask>(100, new TaskComparator());
-		thread.setQueue(queue);
+		queue = store;
+		thread.setStore(queue);
 		thread.setTimeoutQueue(this);
 		thread.setCondition(added);
 		thread.setObserver(obs);
@@ -86,6 +107,26 @@ public class TimeoutQueue {
 		return name;
 	}
 
+	/**
+	 * sets how the timer thread waits for due tasks and additions
+	 *
+	 * @param waitStrategy
+	 */
+	public void setWaitStrategy(final IWaitStrategy waitStrategy) {
+		added.setWaitStrategy(waitStrategy);
+	}
+
+	/**
+	 * lets the timer thread only detect expiry and hand due tasks to the
+	 * dispatcher, so timer accuracy does not depend on the slowest task
+	 *
+	 * @param dispatcher
+	 *            null to run tasks inline in the timer thread
+	 */
+	public void setDispatcher(final ITaskDispatcher dispatcher) {
+		timer.setDispatcher(dispatcher);
+	}
+
 	/**
 	 * adds a observer to the multicaster stack
 	 *
@@ -120,6 +161,34 @@ public class TimeoutQueue {
 		return res;
 	}
 
+	/**
+	 * removes an queued task before its expiry
+	 *
+	 * @param t
+	 * @return true when the task was queued
+	 */
+	public boolean cancel(final ITask t) {
+		if (!queue.remove(t))
+			return false;
+		t.leaveQueue();
+		// let the timer recalculate its wait and unlink
+		added.call();
+		return true;
+	}
+
+	/**
+	 * moves an queued task to its changed next run
+	 *
+	 * @param t
+	 * @return true when the task was queued and got moved
+	 */
+	public boolean reschedule(final ITask t) {
+		if (!queue.remove(t))
+			return false;
+		t.leaveQueue();
+		return add(t);
+	}
+
 	/**
 	 * @return queue size
 	 */
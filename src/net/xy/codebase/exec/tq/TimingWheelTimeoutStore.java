@@ -0,0 +1,411 @@
+package net.xy.codebase.exec.tq;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import net.xy.codebase.collection.LinkedArrayQueue;
+import net.xy.codebase.exec.tasks.IHandledTask;
+import net.xy.codebase.exec.tasks.ITask;
+
+/**
+ * hashed hierarchical timing wheel store. Producers only append to a lock free
+ * inbox, the timer thread moves tasks into the wheel in O(1) and expires them
+ * tick wise. Each level has 64 slots, a slot of a higher level spans a whole
+ * turn of the level below and gets cascaded down once the lower level reaches
+ * it. Tasks fire at the first tick boundary after their fixed next run, so at
+ * most one tick late. Tasks with slack get aligned to the coarsest tick inside
+ * their window so timers close to each other share a slot. Removals get
+ * marked on the entry right away and unlinked by the timer thread on its next
+ * turn, tasks implementing IHandledTask are removable.
+ *
+ * @author Xyan
+ *
+ */
+public class TimingWheelTimeoutStore implements ITimeoutStore {
+	/**
+	 * index bits per level
+	 */
+	private static final int SLOT_BITS = 6;
+	/**
+	 * slots per level
+	 */
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int SLOT_MASK = SLOTS - 1;
+	/**
+	 * amount of levels, 64^4 ticks span
+	 */
+	private static final int LEVELS = 4;
+	/**
+	 * maximum distance in ticks, further tasks get parked at the end and
+	 * reinserted on expiry
+	 */
+	private static final long MAX_SPAN = (1L << SLOT_BITS * LEVELS) - 1;
+	/**
+	 * tasks added but not yet in the wheel
+	 */
+	private final LinkedArrayQueue<Node> inbox = new LinkedArrayQueue<Node>(Node.class, Integer.MAX_VALUE);
+	/**
+	 * removed entries to unlink
+	 */
+	private final LinkedArrayQueue<Node> removed = new LinkedArrayQueue<Node>(Node.class, Integer.MAX_VALUE);
+	/**
+	 * slot list heads per level
+	 */
+	private final Node[][] wheels = new Node[LEVELS][SLOTS];
+	/**
+	 * bitmap of non empty slots per level
+	 */
+	private final long[] occupied = new long[LEVELS];
+	/**
+	 * nanos per tick
+	 */
+	private final long tickNanos;
+	/**
+	 * nanotime of tick 0
+	 */
+	private final long origin = System.nanoTime();
+	/**
+	 * next tick to expire
+	 */
+	private long base;
+	/**
+	 * expired tasks in expiry order
+	 */
+	private Node dueHead, dueTail;
+	/**
+	 * tasks in inbox, wheel and due list
+	 */
+	private final AtomicInteger size = new AtomicInteger();
+
+	/**
+	 * default with one millisecond ticks
+	 */
+	public TimingWheelTimeoutStore() {
+		this(TimeUnit.MILLISECONDS.toNanos(1));
+	}
+
+	/**
+	 * @param tickNanos
+	 *            resolution of the wheel
+	 */
+	public TimingWheelTimeoutStore(final long tickNanos) {
+		if (tickNanos <= 0)
+			throw new IllegalArgumentException("Tick must be positive [" + tickNanos + "]");
+		this.tickNanos = tickNanos;
+	}
+
+	@Override
+	public boolean add(final ITask t) {
+		final Node nd = new Node(t);
+		if (t instanceof IHandledTask)
+			((IHandledTask) t).setHandle(nd);
+		size.incrementAndGet();
+		inbox.add(nd);
+		return true;
+	}
+
+	@Override
+	public boolean remove(final ITask t) {
+		if (!(t instanceof IHandledTask))
+			return false;
+		final Object handle = ((IHandledTask) t).getHandle();
+		if (!(handle instanceof Node))
+			return false;
+		final Node nd = (Node) handle;
+		if (nd.task != t || !Node.STATE.compareAndSet(nd, QUEUED, REMOVED))
+			return false;
+		((IHandledTask) t).setHandle(null);
+		size.decrementAndGet();
+		removed.add(nd);
+		return true;
+	}
+
+	@Override
+	public ITask poll(final long now) {
+		transfer();
+		for (;;) {
+			if (dueHead == null)
+				advance(toTick(now));
+			final Node nd = dueHead;
+			if (nd == null)
+				return null;
+			unlink(nd);
+			if (Node.STATE.compareAndSet(nd, QUEUED, FIRED)) {
+				if (nd.task instanceof IHandledTask)
+					((IHandledTask) nd.task).setHandle(null);
+				size.decrementAndGet();
+				return nd.task;
+			}
+		}
+	}
+
+	@Override
+	public long nextRun() {
+		transfer();
+		if (dueHead != null)
+			return Long.MIN_VALUE;
+		long next = nextBoundary(true);
+		final long bits = occupied[0];
+		if (bits != 0)
+			// first slot at or after the current one
+			next = Math.min(next, base + Long.numberOfTrailingZeros(Long.rotateRight(bits, (int) base & SLOT_MASK)));
+		return next == Long.MAX_VALUE ? next : origin + next * tickNanos;
+	}
+
+	@Override
+	public int size() {
+		return size.get();
+	}
+
+	/**
+	 * moves tasks from the inbox into the wheel and unlinks removed ones
+	 */
+	private void transfer() {
+		Node nd;
+		while ((nd = inbox.take()) != null) {
+			if (nd.state != QUEUED)
+				continue;
+			nd.tick = slackTick(nd.task.nextRunFixed(), nd.task.getSlack());
+			insert(nd);
+		}
+		while ((nd = removed.take()) != null)
+			if (nd.level != UNLINKED)
+				unlink(nd);
+	}
+
+	/**
+	 * removes the node from its slot or the due list
+	 *
+	 * @param nd
+	 */
+	private void unlink(final Node nd) {
+		if (nd.prev != null)
+			nd.prev.next = nd.next;
+		else if (nd.level == DUE)
+			dueHead = nd.next;
+		else {
+			wheels[nd.level][nd.slot] = nd.next;
+			if (nd.next == null)
+				occupied[nd.level] &= ~(1L << nd.slot);
+		}
+		if (nd.next != null)
+			nd.next.prev = nd.prev;
+		else if (nd.level == DUE)
+			dueTail = nd.prev;
+		nd.prev = nd.next = null;
+		nd.level = UNLINKED;
+	}
+
+	/**
+	 * @param nanoTime
+	 * @return last tick started at or before the time
+	 */
+	private long toTick(final long nanoTime) {
+		return Math.floorDiv(nanoTime - origin, tickNanos);
+	}
+
+	/**
+	 * @param nanoTime
+	 * @return first tick starting at or after the time
+	 */
+	private long ceilTick(final long nanoTime) {
+		return -Math.floorDiv(origin - nanoTime, tickNanos);
+	}
+
+	/**
+	 * @param soft
+	 *            earliest run
+	 * @param slack
+	 * @return tick with the most trailing zero bits inside the window
+	 */
+	private long slackTick(final long soft, final long slack) {
+		// round up to not fire before time
+		final long lo = ceilTick(soft);
+		if (slack <= 0)
+			return lo;
+		final long hi = toTick(soft + slack);
+		if (hi <= lo)
+			return lo;
+		final long mask = Long.highestOneBit(lo ^ hi) - 1;
+		return hi & ~mask;
+	}
+
+	/**
+	 * links the node into its level and slot by distance to base
+	 *
+	 * @param nd
+	 */
+	private void insert(final Node nd) {
+		long tick = nd.tick;
+		long idx = tick - base;
+		if (idx < 0) {
+			appendDue(nd);
+			return;
+		}
+		if (idx > MAX_SPAN) {
+			idx = MAX_SPAN;
+			tick = base + MAX_SPAN;
+		}
+		int level = 0;
+		while (idx >= 1L << SLOT_BITS * (level + 1))
+			level++;
+		final int slot = (int) (tick >>> level * SLOT_BITS) & SLOT_MASK;
+		final Node head = wheels[level][slot];
+		nd.level = level;
+		nd.slot = slot;
+		nd.prev = null;
+		nd.next = head;
+		if (head != null)
+			head.prev = nd;
+		wheels[level][slot] = nd;
+		occupied[level] |= 1L << slot;
+	}
+
+	/**
+	 * expires all ticks up to the given one
+	 *
+	 * @param until
+	 */
+	private void advance(final long until) {
+		while (base <= until) {
+			// cascade higher levels when the lower one wraps
+			for (int level = 1; level < LEVELS; level++) {
+				if ((base & (1L << level * SLOT_BITS) - 1) != 0)
+					break;
+				cascade(level, (int) (base >>> level * SLOT_BITS) & SLOT_MASK);
+			}
+			if (occupied[0] == 0) {
+				// nothing expires before the next cascade, jump ahead
+				final long next = nextBoundary(false);
+				if (next > until) {
+					base = until + 1;
+					return;
+				}
+				base = next;
+				continue;
+			}
+			Node nd = detach(0, (int) base & SLOT_MASK);
+			while (nd != null) {
+				final Node next = nd.next;
+				if (nd.state != QUEUED)
+					; // removed, drop
+				else if (nd.tick > base)
+					// parked beyond the span
+					insert(nd);
+				else
+					appendDue(nd);
+				nd = next;
+			}
+			base++;
+		}
+	}
+
+	/**
+	 * @param pending
+	 *            whether the slots at the current base are not yet cascaded
+	 * @return next tick where any upper level slot gets cascaded or
+	 *         Long.MAX_VALUE
+	 */
+	private long nextBoundary(final boolean pending) {
+		long next = Long.MAX_VALUE;
+		for (int level = 1; level < LEVELS; level++) {
+			final long bits = occupied[level];
+			if (bits == 0)
+				continue;
+			final int shift = level * SLOT_BITS;
+			final int cur = (int) (base >>> shift) & SLOT_MASK;
+			final int off;
+			if (pending && (base & (1L << shift) - 1) == 0)
+				off = Long.numberOfTrailingZeros(Long.rotateRight(bits, cur));
+			else
+				off = Long.numberOfTrailingZeros(Long.rotateRight(bits, cur + 1)) + 1;
+			next = Math.min(next, (base >>> shift) + off << shift);
+		}
+		return next;
+	}
+
+	/**
+	 * moves all nodes of an upper level slot down
+	 *
+	 * @param level
+	 * @param slot
+	 */
+	private void cascade(final int level, final int slot) {
+		Node nd = detach(level, slot);
+		while (nd != null) {
+			final Node next = nd.next;
+			if (nd.state == QUEUED)
+				insert(nd);
+			nd = next;
+		}
+	}
+
+	/**
+	 * @param level
+	 * @param slot
+	 * @return unlinked list of the slot
+	 */
+	private Node detach(final int level, final int slot) {
+		final Node head = wheels[level][slot];
+		wheels[level][slot] = null;
+		occupied[level] &= ~(1L << slot);
+		for (Node nd = head; nd != null; nd = nd.next)
+			nd.level = UNLINKED;
+		return head;
+	}
+
+	/**
+	 * @param nd
+	 */
+	private void appendDue(final Node nd) {
+		nd.level = DUE;
+		nd.next = null;
+		nd.prev = dueTail;
+		if (dueTail == null)
+			dueHead = nd;
+		else
+			dueTail.next = nd;
+		dueTail = nd;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("TimingWheelTimeoutStore [size=%s,tick=%s,base=%s]", size(), tickNanos, base);
+	}
+
+	/**
+	 * node states
+	 */
+	private static final int QUEUED = 0, REMOVED = 1, FIRED = 2;
+	/**
+	 * pseudo levels for nodes outside the wheel
+	 */
+	private static final int UNLINKED = -2, DUE = -1;
+
+	/**
+	 * list node holding an task in the wheel, doubles as task handle
+	 *
+	 * @author Xyan
+	 *
+	 */
+	private static class Node {
+		private static final AtomicIntegerFieldUpdater<Node> STATE = AtomicIntegerFieldUpdater.newUpdater(Node.class,
+				"state");
+		private final ITask task;
+		/**
+		 * queued, removed or fired, the only field touched outside the timer
+		 * thread
+		 */
+		private volatile int state = QUEUED;
+		private long tick;
+		private int level = UNLINKED;
+		private int slot;
+		private Node prev;
+		private Node next;
+
+		public Node(final ITask task) {
+			this.task = task;
+		}
+	}
+}
@@ -32,6 +32,120 @@ public class ArrayQueueTest {
 		Assert.assertEquals(10, aq.size());
 	}
 
+	@Test
+	public void testMPMCMaxLimit() {
+		final MPMCArrayQueue<Object> aq = new MPMCArrayQueue<Object>(Object.class, 10);
+		final Object obj = new Object();
+		Assert.assertEquals(16, aq.capacity());
+		for (int i = 0; i < 16; i++)
+			Assert.assertTrue(aq.add(obj));
+		Assert.assertFalse(aq.add(obj));
+		Assert.assertEquals(16, aq.size());
+		Assert.assertEquals(obj, aq.take());
+		Assert.assertTrue(aq.add(obj));
+		aq.clear();
+		Assert.assertTrue(aq.isEmpty());
+		Assert.assertNull(aq.take());
+	}
+
+	@Test
+	public void testBatchAddDrain() {
+		final Integer[] elems = new Integer[20];
+		for (int i = 0; i < elems.length; i++)
+			elems[i] = i;
+		for (final QueueType type : QueueType.values()) {
+			final Queue<Integer> aq = type.create(Integer.class, 16);
+			Assert.assertEquals(16, aq.addAll(elems, 0, elems.length));
+			Assert.assertEquals(0, aq.addAll(elems, 16, 4));
+			final AtomicInteger next = new AtomicInteger();
+			Assert.assertEquals(10, aq.drainTo(e -> Assert.assertEquals(next.getAndIncrement(), e.intValue()), 10));
+			Assert.assertEquals(4, aq.addAll(elems, 16, 4));
+			Assert.assertEquals(10, aq.drainTo(e -> Assert.assertEquals(next.getAndIncrement(), e.intValue()), 64));
+			Assert.assertEquals(20, next.get());
+			Assert.assertTrue(aq.isEmpty());
+		}
+	}
+
+	@Test
+	public void testPriorityPolicies() {
+		final PriorityArrayQueues<Prio> strict = new PriorityArrayQueues<Prio>(3, 100, Prio.class);
+		for (int i = 0; i < 30; i++)
+			Assert.assertTrue(strict.add(new Prio(2 - i % 3)));
+		Assert.assertEquals(30, strict.size());
+		for (int i = 0; i < 30; i++)
+			Assert.assertEquals(i / 10, strict.take().getPriority());
+		Assert.assertNull(strict.take());
+		Assert.assertTrue(strict.isEmpty());
+
+		final PriorityArrayQueues<Prio> weighted = new PriorityArrayQueues<Prio>(2, 100, Prio.class);
+		weighted.setPolicy(new WeightedPriorityPolicy(3, 1));
+		for (int i = 0; i < 40; i++)
+			weighted.add(new Prio(i % 2));
+		final int[] served = new int[2];
+		for (int i = 0; i < 20; i++)
+			served[weighted.take().getPriority()]++;
+		Assert.assertEquals(15, served[0]);
+		Assert.assertEquals(5, served[1]);
+		Assert.assertEquals(20, weighted.drainTo(e -> {
+		}, 100));
+		Assert.assertTrue(weighted.isEmpty());
+
+		try {
+			strict.setPolicy(new AgingPriorityPolicy(2, 1000));
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {}
+		strict.setPolicy(new AgingPriorityPolicy(3, 1000));
+	}
+
+	private static class Prio implements IPriority {
+		private final int prio;
+
+		public Prio(final int prio) {
+			this.prio = prio;
+		}
+
+		@Override
+		public int getPriority() {
+			return prio;
+		}
+	}
+
+	@Test
+	public void testConcurrentSetCoalescing() throws Exception {
+		final ConcurrentArrayQueueSet<Integer> aq = new ConcurrentArrayQueueSet<Integer>(Integer.class, 1024);
+		for (int i = 0; i < 100; i++)
+			Assert.assertTrue(aq.add(i % 10));
+		Assert.assertEquals(10, aq.size());
+		for (int i = 0; i < 10; i++)
+			Assert.assertEquals(i, aq.take().intValue());
+		Assert.assertNull(aq.take());
+		Assert.assertTrue(aq.add(1));
+		Assert.assertEquals(1, aq.size());
+		aq.clear();
+		Assert.assertTrue(aq.isEmpty());
+	}
+
+	@Test
+	public void testConcurrentSorted() {
+		final ConcurrentSortedQueue<Integer> aq = new ConcurrentSortedQueue<Integer>(Integer.class, 100,
+				Integer::compare);
+		final Random rnd = new Random();
+		for (int i = 0; i < 100; i++)
+			Assert.assertTrue(aq.add(rnd.nextInt(1000)));
+		Assert.assertFalse(aq.add(1));
+		final AtomicInteger last = new AtomicInteger(-1);
+		final int drained = aq.drainTo(500, e -> {
+			Assert.assertTrue(e <= 500 && e >= last.get());
+			last.set(e);
+		}, Integer.MAX_VALUE);
+		Assert.assertEquals(100 - drained, aq.size());
+		for (Integer e = aq.take(); e != null; e = aq.take()) {
+			Assert.assertTrue(e > 500 && e >= last.get());
+			last.set(e);
+		}
+		Assert.assertTrue(aq.isEmpty());
+	}
+
 	@Test
 	public void testReordering() throws InterruptedException {
 		final ArrayTestQueue aq = new ArrayTestQueue(3);
@@ -136,7 +250,51 @@ public class ArrayQueueTest {
 		testNormalOperation(aq);
 	}
 
-	private void testNormalOperation(final ArrayQueue<Object> aq) throws Exception {
+	@Test
+	public void testNormalOperationMPMC() throws Exception {
+		final Queue<Object> aq = new MPMCArrayQueue<Object>(Object.class, 1024 * 10);
+		testNormalOperation(aq);
+	}
+
+	@Test
+	public void testNormalOperationLinked() throws Exception {
+		final Queue<Object> aq = new LinkedArrayQueue<Object>(Object.class, 1024 * 10, 16);
+		testNormalOperation(aq);
+	}
+
+	@Test
+	public void testNormalOperationMPSC() throws Exception {
+		final Queue<Object> aq = new MPSCArrayQueue<Object>(Object.class, 1024);
+		startSim(aq, 4, 1, 100000);
+	}
+
+	@Test
+	public void testOrderingSPSC() throws Exception {
+		final SPSCArrayQueue<Integer> aq = new SPSCArrayQueue<Integer>(Integer.class, 64);
+		final int amount = 1000000;
+		final Thread producer = new Thread("Producer") {
+			@Override
+			public void run() {
+				for (int i = 0; i < amount;)
+					if (aq.add(i))
+						i++;
+					else
+						Thread.yield();
+			};
+		};
+		producer.start();
+		for (int i = 0; i < amount;) {
+			final Integer res = aq.take();
+			if (res != null)
+				Assert.assertEquals(i++, res.intValue());
+			else
+				Thread.yield();
+		}
+		producer.join();
+		Assert.assertTrue(aq.isEmpty());
+	}
+
+	private void testNormalOperation(final Queue<Object> aq) throws Exception {
 		final long seed = System.currentTimeMillis();
 		System.out.print("Seed: " + seed + " ");
 		final Random rnd = new Random(seed);
@@ -147,7 +305,7 @@ public class ArrayQueueTest {
 		startSim(aq, producers, consumers, amount);
 	}
 
-	private float startSim(final ArrayQueue<Object> aq, final int producers, final int consumers, final long amount)
+	private float startSim(final Queue<Object> aq, final int producers, final int consumers, final long amount)
 			throws InterruptedException {
 		final Object elem = new Object();
 		final AtomicInteger proc = new AtomicInteger();
@@ -49,6 +49,32 @@ public class CASMonitorTest {
 		Assert.assertEquals(25, cm.getState());
 	}
 
+	@Test
+	public void testWaitStrategies() throws InterruptedException {
+		final IWaitStrategy[] strategies = new IWaitStrategy[] { BusySpinWaitStrategy.INSTANCE,
+				new SpinYieldWaitStrategy(100), new SpinParkWaitStrategy(100, 10), ParkWaitStrategy.INSTANCE };
+		for (final IWaitStrategy ws : strategies) {
+			final net.xy.codebase.concurrent.Semaphore sm = new net.xy.codebase.concurrent.Semaphore();
+			sm.setWaitStrategy(ws);
+			// timeout
+			final long start = System.nanoTime();
+			sm.await(sm.getState(), TimeUnit.MILLISECONDS.toNanos(5));
+			Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(5));
+			// woken by call
+			final CountDownLatch cl = new CountDownLatch(1);
+			final int state = sm.getState();
+			new Thread() {
+				@Override
+				public void run() {
+					sm.await(state);
+					cl.countDown();
+				};
+			}.start();
+			sm.call();
+			Assert.assertTrue(cl.await(1, TimeUnit.SECONDS));
+		}
+	}
+
 	@Test
 	public void testReturnByState() throws InterruptedException {
 		final Monitor cm = new Monitor();
@@ -0,0 +1,106 @@
+package net.xy.codebase.concurrent;
+
+import java.lang.management.ManagementFactory;
+import java.rmi.server.RMIServerSocketFactory;
+import java.util.concurrent.CountDownLatch;
+
+import javax.management.Attribute;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.xy.codebase.concurrent.ContentionProfiler.Hold;
+import net.xy.codebase.concurrent.ContentionProfiler.LockStats;
+import net.xy.codebase.concurrent.jdk.UnfairLock;
+import net.xy.codebase.exec.ThreadUtils;
+import net.xy.codebase.jmx.AbstractJMXRegistry;
+
+public class ContentionProfilerTest {
+
+	@After
+	public void tearDown() {
+		ContentionProfiler.INSTANCE.setEnabled(false);
+	}
+
+	@Test
+	public void testDisabled() {
+		final UnfairLock lock = new UnfairLock();
+		lock.lock();
+		lock.unlock();
+		Assert.assertNull(lock.getContentionStats());
+	}
+
+	@Test
+	public void testLockStats() throws Exception {
+		final ContentionProfiler prof = ContentionProfiler.INSTANCE;
+		final UnfairLock lock = new UnfairLock();
+		prof.setName(lock, "testLock");
+		prof.setEnabled(true);
+
+		final CountDownLatch locked = new CountDownLatch(1);
+		final Thread holder = new Thread(() -> {
+			lock.lock();
+			lock.lock();
+			locked.countDown();
+			ThreadUtils.sleep(20);
+			lock.unlock();
+			lock.unlock();
+		}, "longHolder");
+		holder.start();
+		locked.await();
+		lock.lock();
+		lock.unlock();
+		holder.join();
+
+		final LockStats stats = lock.getContentionStats();
+		Assert.assertEquals("testLock", stats.getName());
+		Assert.assertEquals(3, stats.getAcquires());
+		Assert.assertEquals(1, stats.getContended());
+		Assert.assertTrue(stats.getMaxWaitNanos() > 0);
+		Assert.assertEquals(stats.getMaxWaitNanos(), stats.getWaitNanos());
+		final Hold[] holds = stats.getLongestHolds();
+		Assert.assertEquals(2, holds.length);
+		Assert.assertEquals("longHolder", holds[0].getThread());
+		Assert.assertTrue(holds[0].getNanos() >= 20000000L);
+	}
+
+	@Test
+	public void testSync() throws Exception {
+		final Semaphore sem = new Semaphore();
+		ContentionProfiler.INSTANCE.setEnabled(true);
+		final int state = sem.getState();
+		sem.await(state - 1);
+		final Thread waiter = new Thread(() -> sem.await(state));
+		waiter.start();
+		while (sem.getWaiters() == 0)
+			Thread.yield();
+		sem.call();
+		waiter.join();
+
+		final LockStats stats = sem.getContentionStats();
+		Assert.assertEquals(2, stats.getAcquires());
+		Assert.assertEquals(1, stats.getContended());
+	}
+
+	@Test
+	public void testJmx() throws Exception {
+		final AbstractJMXRegistry jmx = new AbstractJMXRegistry() {
+			@Override
+			protected RMIServerSocketFactory createServerSocketFactory(final String[] enabledCipherSuites,
+					final String[] enabledProtocols) {
+				return null;
+			}
+		};
+		ContentionProfiler.INSTANCE.register(jmx);
+		try {
+			final ObjectName name = new ObjectName("jmx.generic:type=ContentionProfiler");
+			ManagementFactory.getPlatformMBeanServer().setAttribute(name, new Attribute("Enabled", true));
+			Assert.assertTrue(ContentionProfiler.isActive());
+			Assert.assertNotNull(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Report"));
+		} finally {
+			jmx.unregister(ContentionProfiler.class);
+		}
+	}
+}
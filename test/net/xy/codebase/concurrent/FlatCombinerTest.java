@@ -0,0 +1,78 @@
+package net.xy.codebase.concurrent;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.xy.codebase.collection.ArrayQueue;
+import net.xy.codebase.collection.CombiningHashSet;
+import net.xy.codebase.collection.CombiningQueue;
+
+public class FlatCombinerTest {
+	private static final int THREADS = 8;
+	private static final int OPS = 20000;
+
+	@Test
+	public void testExclusive() throws Exception {
+		// plain counter, lost updates show missing exclusion
+		final FlatCombiner<int[]> fc = new FlatCombiner<int[]>(new int[1]);
+		run(() -> {
+			for (int i = 0; i < OPS; i++)
+				fc.apply(c -> c[0]++);
+		});
+		Assert.assertEquals(THREADS * OPS, (int) fc.apply(c -> c[0]));
+	}
+
+	@Test
+	public void testError() throws Exception {
+		final FlatCombiner<int[]> fc = new FlatCombiner<int[]>(new int[1]);
+		try {
+			fc.apply(c -> c[1]);
+			Assert.fail();
+		} catch (final ArrayIndexOutOfBoundsException e) {}
+		Assert.assertEquals(1, (int) fc.apply(c -> ++c[0]));
+	}
+
+	@Test
+	public void testAdapters() throws Exception {
+		final CombiningQueue<Integer> queue = new CombiningQueue<Integer>(
+				new ArrayQueue<Integer>(Integer.class, THREADS * OPS));
+		final CombiningHashSet<Integer> set = new CombiningHashSet<Integer>(Integer.class);
+		final int[] ids = new int[1];
+		run(() -> {
+			final int base;
+			synchronized (ids) {
+				base = ids[0]++ * OPS;
+			}
+			for (int i = 0; i < OPS; i++) {
+				queue.add(base + i);
+				set.put(base + i);
+			}
+		});
+		Assert.assertEquals(THREADS * OPS, queue.size());
+		Assert.assertEquals(THREADS * OPS, set.size());
+		final int[] drained = new int[1];
+		run(() -> {
+			Integer elem;
+			while ((elem = queue.take()) != null)
+				if (set.remove(elem))
+					synchronized (drained) {
+						drained[0]++;
+					}
+		});
+		Assert.assertEquals(THREADS * OPS, drained[0]);
+		Assert.assertTrue(queue.isEmpty());
+		Assert.assertTrue(set.isEmpty());
+	}
+
+	private static void run(final Runnable run) throws InterruptedException {
+		final CountDownLatch done = new CountDownLatch(THREADS);
+		for (int t = 0; t < THREADS; t++)
+			new Thread(() -> {
+				run.run();
+				done.countDown();
+			}).start();
+		done.await();
+	}
+}
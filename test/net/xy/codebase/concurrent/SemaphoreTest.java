@@ -0,0 +1,60 @@
+package net.xy.codebase.concurrent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SemaphoreTest {
+
+	@Test
+	public void testNoLostWakeup() throws Exception {
+		final Semaphore sem = new Semaphore();
+		final AtomicInteger permits = new AtomicInteger();
+		final int threads = 8, perThread = 5000;
+		final CountDownLatch done = new CountDownLatch(threads);
+		for (int i = 0; i < threads; i++)
+			new Thread(() -> {
+				for (int n = 0; n < perThread; n++)
+					for (;;) {
+						final int state = sem.getState();
+						final int p = permits.get();
+						if (p > 0 && permits.compareAndSet(p, p - 1))
+							break;
+						if (p == 0)
+							sem.await(state);
+					}
+				done.countDown();
+			}).start();
+		for (int n = 0; n < threads * perThread; n++) {
+			permits.incrementAndGet();
+			sem.call();
+		}
+		Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+		Assert.assertEquals(0, sem.getWaiters());
+	}
+
+	@Test
+	public void testWakeAfterTimeouts() throws Exception {
+		final Semaphore sem = new Semaphore();
+		final CountDownLatch waiting = new CountDownLatch(4);
+		final CountDownLatch done = new CountDownLatch(4);
+		for (int i = 0; i < 4; i++)
+			new Thread(() -> {
+				// leaves lots of cancelled slots behind
+				for (int n = 0; n < 2000; n++)
+					sem.await(sem.getState(), 1000);
+				final int state = sem.getState();
+				waiting.countDown();
+				sem.await(state);
+				done.countDown();
+			}).start();
+		Assert.assertTrue(waiting.await(10, TimeUnit.SECONDS));
+		while (sem.getWaiters() < 4)
+			Thread.yield();
+		sem.callAll();
+		Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+	}
+}
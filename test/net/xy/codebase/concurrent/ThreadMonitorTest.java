@@ -173,4 +173,42 @@ public class ThreadMonitorTest {
 		tm.waitAbs(0);
 		Assert.assertEquals(0, tm.count());
 	}
+
+	@Test
+	public void testAdaptiveParking() throws Exception {
+		final ThreadMonitor atm = new ThreadMonitor(0);
+		final CountDownLatch cdl1 = new CountDownLatch(1);
+		final CountDownLatch cdl2 = new CountDownLatch(1);
+		atm.enter();
+		atm.lock();
+		final Thread enterer = new Thread() {
+			@Override
+			public void run() {
+				atm.enter();
+				cdl1.countDown();
+				atm.leave();
+			};
+		};
+		enterer.start();
+		final Thread waiter = new Thread() {
+			@Override
+			public void run() {
+				atm.waitAbs(0);
+				cdl2.countDown();
+			};
+		};
+		waiter.start();
+
+		// both waiters park instead of spinning
+		while (enterer.getState() != Thread.State.WAITING || waiter.getState() != Thread.State.WAITING)
+			Thread.sleep(1);
+		Assert.assertEquals(1, cdl1.getCount());
+		atm.leave();
+		Assert.assertTrue(cdl2.await(1, TimeUnit.SECONDS));
+		Assert.assertEquals(1, cdl1.getCount());
+		atm.release();
+		Assert.assertTrue(cdl1.await(1, TimeUnit.SECONDS));
+		enterer.join();
+		Assert.assertEquals(0, atm.count());
+	}
 }
@@ -0,0 +1,129 @@
+package net.xy.codebase.concurrent.jdk;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SharedLockTest {
+	private int a, b;
+
+	@Test
+	public void testReadWrite() throws Exception {
+		final ReadWriteQueuedLock lock = new ReadWriteQueuedLock();
+		final Lock rl = lock.readLock(), wl = lock.writeLock();
+		final AtomicInteger readers = new AtomicInteger(), writers = new AtomicInteger();
+		final AtomicInteger maxReaders = new AtomicInteger(), violations = new AtomicInteger();
+		final int threads = 8, loops = 20000;
+		final CountDownLatch done = new CountDownLatch(threads);
+		for (int i = 0; i < threads; i++) {
+			final boolean writer = i % 4 == 0;
+			new Thread(() -> {
+				for (int n = 0; n < loops; n++)
+					if (writer) {
+						wl.lock();
+						if (writers.incrementAndGet() != 1 || readers.get() != 0)
+							violations.incrementAndGet();
+						writers.decrementAndGet();
+						wl.unlock();
+					} else {
+						rl.lock();
+						final int r = readers.incrementAndGet();
+						if (writers.get() != 0)
+							violations.incrementAndGet();
+						maxReaders.accumulateAndGet(r, Math::max);
+						readers.decrementAndGet();
+						rl.unlock();
+					}
+				done.countDown();
+			}).start();
+		}
+		Assert.assertTrue(done.await(30, TimeUnit.SECONDS));
+		Assert.assertEquals(0, violations.get());
+		Assert.assertEquals(0, lock.getReadLockCount());
+		Assert.assertFalse(lock.isWriteLocked());
+
+		// downgrade
+		wl.lock();
+		rl.lock();
+		wl.unlock();
+		Assert.assertFalse(wl.tryLock());
+		rl.unlock();
+		Assert.assertTrue(wl.tryLock());
+		wl.unlock();
+	}
+
+	@Test
+	public void testReentrantRead() throws Exception {
+		final ReadWriteQueuedLock lock = new ReadWriteQueuedLock();
+		final Lock rl = lock.readLock(), wl = lock.writeLock();
+		rl.lock();
+		final CountDownLatch written = new CountDownLatch(1);
+		new Thread(() -> {
+			wl.lock();
+			wl.unlock();
+			written.countDown();
+		}).start();
+		// let the writer queue up
+		Thread.sleep(50);
+		final AtomicInteger others = new AtomicInteger();
+		final Thread other = new Thread(() -> {
+			if (rl.tryLock()) {
+				others.incrementAndGet();
+				rl.unlock();
+			}
+		});
+		other.start();
+		other.join();
+		// new readers wait for the writer, nested ones pass
+		Assert.assertEquals(0, others.get());
+		Assert.assertTrue(rl.tryLock());
+		Assert.assertEquals(2, lock.getReadHoldCount());
+		rl.unlock();
+		rl.unlock();
+		Assert.assertEquals(0, lock.getReadHoldCount());
+		Assert.assertTrue(written.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testOptimisticRead() throws Exception {
+		final StampedQueuedLock lock = new StampedQueuedLock();
+		final AtomicInteger torn = new AtomicInteger(), optimistic = new AtomicInteger();
+		final int loops = 100000;
+		final CountDownLatch done = new CountDownLatch(3);
+		new Thread(() -> {
+			for (int n = 1; n <= loops; n++) {
+				final long stamp = lock.writeLock();
+				a = n;
+				b = -n;
+				lock.unlockWrite(stamp);
+			}
+			done.countDown();
+		}).start();
+		for (int i = 0; i < 2; i++)
+			new Thread(() -> {
+				for (int n = 0; n < loops; n++) {
+					long stamp = lock.tryOptimisticRead();
+					int la = a, lb = b;
+					if (lock.validate(stamp))
+						optimistic.incrementAndGet();
+					else {
+						stamp = lock.readLock();
+						la = a;
+						lb = b;
+						lock.unlockRead(stamp);
+					}
+					if (la != -lb)
+						torn.incrementAndGet();
+				}
+				done.countDown();
+			}).start();
+		Assert.assertTrue(done.await(30, TimeUnit.SECONDS));
+		Assert.assertEquals(0, torn.get());
+		Assert.assertTrue(optimistic.get() > 0);
+		Assert.assertEquals(0, lock.tryOptimisticRead() & 1);
+	}
+}
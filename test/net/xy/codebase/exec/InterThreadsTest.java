@@ -0,0 +1,262 @@
+package net.xy.codebase.exec;
+
+import java.util.EnumMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.xy.codebase.collection.QueueType;
+import net.xy.codebase.exec.pool.VirtualExecutor;
+
+public class InterThreadsTest {
+
+	@Test
+	public void testKeyedOrder() throws InterruptedException {
+		final InterThreads<Target> it = new InterThreads<Target>(Target.class, 1 << 14);
+		final int stripes = 4, keys = 64, perKey = 200;
+		it.setStripes(Target.LOGIC, stripes, QueueType.MPSC, 1 << 14);
+		Assert.assertEquals(stripes, it.getStripes(Target.LOGIC));
+
+		final AtomicBoolean running = new AtomicBoolean(true);
+		for (int i = 0; i < stripes; i++) {
+			final int stripe = i;
+			new Thread(() -> {
+				while (running.get())
+					it.doAll(Target.LOGIC, stripe, 10, null);
+			}).start();
+		}
+
+		final int[] last = new int[keys];
+		final AtomicInteger disorder = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(keys * perKey);
+		for (int n = 0; n < perKey; n++)
+			for (int k = 0; k < keys; k++) {
+				final int key = k, seq = n;
+				Assert.assertTrue(it.run(Target.LOGIC, Integer.valueOf(key), () -> {
+					// per key only one stripe thread touches the slot
+					if (last[key] != seq)
+						disorder.incrementAndGet();
+					last[key] = seq + 1;
+					done.countDown();
+				}));
+			}
+		Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+		running.set(false);
+		Assert.assertEquals(0, disorder.get());
+	}
+
+	@Test
+	public void testInterruptedKeyed() {
+		final InterThreads<Target> it = new InterThreads<Target>(Target.class, 16);
+		it.setStripes(Target.LOGIC, 2, QueueType.SPSC, 16);
+		final AtomicInteger adds = new AtomicInteger();
+		it.setObserver(new JobObserver<Target>() {
+			@Override
+			public void jobAdded(final Target target, final Runnable job) {
+				adds.incrementAndGet();
+			}
+		});
+		final Integer key = Integer.valueOf(7);
+		final StringBuilder order = new StringBuilder();
+		it.run(Target.LOGIC, key, () -> order.append('a'));
+		it.run(Target.LOGIC, key, () -> {
+			order.append('b');
+			throw new IInterThreads.InterruptedException();
+		});
+		for (final char c : "cde".toCharArray())
+			it.run(Target.LOGIC, key, () -> order.append(c));
+		for (int stripe = 0; stripe < 2; stripe++)
+			it.doAll(Target.LOGIC, stripe, 0, null);
+		Assert.assertEquals("ab", order.toString());
+
+		// handed back jobs run before newer ones of the key
+		it.run(Target.LOGIC, key, () -> order.append('f'));
+		for (int stripe = 0; stripe < 2; stripe++)
+			it.doAll(Target.LOGIC, stripe, 0, null);
+		Assert.assertEquals("abcdef", order.toString());
+		Assert.assertEquals(6, adds.get());
+	}
+
+	@Test
+	public void testOverflow() throws InterruptedException {
+		final InterThreads<Target> it = new InterThreads<Target>(Target.class, 4);
+		final AtomicInteger ran = new AtomicInteger();
+		for (int i = 0; i < 4; i++)
+			Assert.assertTrue(it.run(Target.LOGIC, new Job(i)));
+		Assert.assertFalse(it.run(Target.LOGIC, new Job(4)));
+
+		it.setOverflowPolicy(Target.LOGIC, OverflowPolicy.DROP_OLDEST, 0);
+		Assert.assertTrue(it.run(Target.LOGIC, new Job(4)));
+		Assert.assertEquals(1, ((Job) it.next(Target.LOGIC, 0)).id);
+
+		it.setOverflowPolicy(Target.LOGIC, OverflowPolicy.CALLER_RUNS, 0);
+		Assert.assertTrue(it.run(Target.LOGIC, new Job(5)));
+		Assert.assertTrue(it.run(Target.LOGIC, () -> ran.incrementAndGet()));
+		Assert.assertEquals(1, ran.get());
+
+		it.setOverflowPolicy(Target.LOGIC, OverflowPolicy.BLOCK, 20);
+		Assert.assertFalse(it.run(Target.LOGIC, new Job(6)));
+		it.setOverflowPolicy(Target.LOGIC, OverflowPolicy.BLOCK, 10000);
+		new Thread(() -> {
+			try {
+				Thread.sleep(50);
+			} catch (final InterruptedException e) {
+			}
+			it.next(Target.LOGIC, 0);
+		}).start();
+		Assert.assertTrue(it.run(Target.LOGIC, new Job(6)));
+	}
+
+	@Test
+	public void testOverflowChecks() {
+		final EnumMap<Target, QueueType> types = new EnumMap<Target, QueueType>(Target.class);
+		types.put(Target.LOGIC, QueueType.MPSC);
+		final InterThreads<Target> it = new InterThreads<Target>(Target.class, 4, types);
+		try {
+			it.setOverflowPolicy(Target.LOGIC, OverflowPolicy.DROP_OLDEST, 0);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {}
+		it.setOverflowPolicy(Target.LOGIC, OverflowPolicy.CALLER_RUNS, 0);
+		try {
+			it.setStripes(Target.LOGIC, 2, QueueType.MPMC, 4);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {}
+		it.setOverflowPolicy(Target.LOGIC, OverflowPolicy.DROP, 0);
+		it.setStripes(Target.LOGIC, 2, QueueType.MPMC, 4);
+		try {
+			it.setOverflowPolicy(Target.LOGIC, OverflowPolicy.CALLER_RUNS, 0);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {}
+	}
+
+	@Test
+	public void testVirtualShutdown() {
+		final InterThreads<Target> it = new InterThreads<Target>(Target.class, 4);
+		final VirtualExecutor vexec = new VirtualExecutor("Virtual");
+		it.setVirtual(Target.LOGIC, vexec);
+		vexec.shutdown();
+		Assert.assertFalse(it.run(Target.LOGIC, new Job(0)));
+		// rejected job is not left in queue
+		Assert.assertNull(it.next(Target.LOGIC, 0));
+
+		final EnumMap<Target, QueueType> types = new EnumMap<Target, QueueType>(Target.class);
+		types.put(Target.LOGIC, QueueType.MPSC);
+		try {
+			new InterThreads<Target>(Target.class, 4, types).setVirtual(Target.LOGIC, vexec);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {}
+	}
+
+	@Test
+	public void testReserve() {
+		final InterThreads<Target> it = new InterThreads<Target>(Target.class, 4);
+		Assert.assertTrue(it.tryReserve(Target.LOGIC, 2));
+		Assert.assertFalse(it.tryReserve(Target.LOGIC, 3));
+		Assert.assertTrue(it.run(Target.LOGIC, new Job(0)));
+		Assert.assertTrue(it.run(Target.LOGIC, new Job(1)));
+		// remaining slots are promised
+		Assert.assertFalse(it.run(Target.LOGIC, new Job(2)));
+		Assert.assertTrue(it.runReserved(Target.LOGIC, new Job(3)));
+		Assert.assertTrue(it.tryReserve(Target.LOGIC, 0));
+		Assert.assertFalse(it.tryReserve(Target.LOGIC, 2));
+		it.release(Target.LOGIC, 1);
+		Assert.assertTrue(it.run(Target.LOGIC, new Job(4)));
+		// no reservation left
+		Assert.assertFalse(it.runReserved(Target.LOGIC, new Job(5)));
+		it.release(Target.LOGIC, 1);
+		Assert.assertFalse(it.tryReserve(Target.LOGIC, 1));
+
+		// blocking adds respect reservations too
+		final InterThreads<Target> bit = new InterThreads<Target>(Target.class, 4);
+		bit.setOverflowPolicy(Target.LOGIC, OverflowPolicy.BLOCK, 10);
+		Assert.assertTrue(bit.tryReserve(Target.LOGIC, 3));
+		Assert.assertTrue(bit.run(Target.LOGIC, new Job(0)));
+		Assert.assertFalse(bit.run(Target.LOGIC, new Job(1)));
+		Assert.assertNotNull(bit.next(Target.LOGIC, 0));
+		Assert.assertTrue(bit.run(Target.LOGIC, new Job(1)));
+	}
+
+	@Test
+	public void testTokenBucket() {
+		final TokenBucket parent = new TokenBucket(10, 3);
+		final TokenBucket child = new TokenBucket(1000, 5, parent);
+		final long now = System.nanoTime();
+		for (int i = 0; i < 3; i++)
+			Assert.assertEquals(0, child.tryAcquire(now));
+		// parent exhausted, child gets refunded
+		final long wait = child.tryAcquire(now);
+		Assert.assertTrue(wait > 0 && wait <= TimeUnit.MILLISECONDS.toNanos(100));
+		Assert.assertEquals(2, child.available(now));
+		Assert.assertEquals(0, child.tryAcquire(now + wait));
+	}
+
+	@Test
+	public void testRateLimited() throws InterruptedException {
+		final InterThreads<Target> it = new InterThreads<Target>(Target.class, 1 << 10);
+		final AtomicBoolean running = new AtomicBoolean(true);
+		new Thread(() -> {
+			while (running.get())
+				it.doAll(Target.LOGIC, 10, null);
+		}).start();
+
+		final int amount = 25;
+		final CountDownLatch done = new CountDownLatch(amount);
+		final ExecutionRateLimiter<?> limiter = it.rateLimited(Target.LOGIC, () -> done.countDown(), 1000, 50);
+		// budget set afterwards applies to the existing limiter
+		it.setRateLimit(Target.LOGIC, 200, 5);
+		final long start = System.nanoTime();
+		for (int i = 0; i < amount; i++)
+			limiter.run();
+		Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+		// burst of 5 then bound by the targets 200 per second
+		Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+		running.set(false);
+		it.shutdown();
+	}
+
+	@Test
+	public void testRateLimitedReenable() throws InterruptedException {
+		final InterThreads<Target> it = new InterThreads<Target>(Target.class, 1 << 10);
+		final AtomicBoolean running = new AtomicBoolean(true);
+		new Thread(() -> {
+			while (running.get())
+				it.doAll(Target.LOGIC, 10, null);
+		}).start();
+
+		final AtomicInteger runs = new AtomicInteger();
+		final ExecutionRateLimiter<?> limiter = it.rateLimited(Target.LOGIC, () -> runs.incrementAndGet(), 20, 1);
+		limiter.run();
+		ThreadUtils.sleep(20);
+		limiter.run();
+		// second run is delayed, gets dropped while disabled
+		limiter.setEnabled(false);
+		ThreadUtils.sleep(150);
+		Assert.assertEquals(0, limiter.getPending());
+		limiter.setEnabled(true);
+		limiter.run();
+		ThreadUtils.sleep(150);
+		Assert.assertEquals(2, runs.get());
+		running.set(false);
+		it.shutdown();
+	}
+
+	private static class Job implements Runnable {
+		private final int id;
+
+		public Job(final int id) {
+			this.id = id;
+		}
+
+		@Override
+		public void run() {
+		}
+	}
+
+	private static enum Target {
+		LOGIC
+	}
+}
@@ -0,0 +1,49 @@
+package net.xy.codebase.exec;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void testPercentiles() {
+		final LatencyHistogram hist = new LatencyHistogram();
+		for (long i = 1; i <= 100000; i++)
+			hist.record(i * 1000);
+		Assert.assertEquals(100000, hist.getCount());
+		Assert.assertEquals(100000000, hist.getMax());
+		assertNear(50000000, hist.getP50());
+		assertNear(99000000, hist.getP99());
+		assertNear(99900000, hist.getP999());
+		hist.reset();
+		Assert.assertEquals(0, hist.getP99());
+		hist.record(7);
+		Assert.assertEquals(7, hist.getP50());
+	}
+
+	@Test
+	public void testTakeInterval() throws InterruptedException {
+		final LatencyHistogram hist = new LatencyHistogram();
+		final int threads = 4, amount = 100000;
+		final Thread[] recorders = new Thread[threads];
+		for (int t = 0; t < threads; t++)
+			(recorders[t] = new Thread(() -> {
+				for (int i = 1; i <= amount; i++)
+					hist.record(i);
+			})).start();
+		long taken = 0;
+		for (int i = 0; i < 10; i++)
+			taken += hist.takeInterval().getCount();
+		for (final Thread recorder : recorders)
+			recorder.join();
+		final LatencyHistogram last = hist.takeInterval();
+		// no record lost or counted twice
+		Assert.assertEquals(threads * amount, taken + last.getCount());
+		Assert.assertEquals(0, hist.getCount());
+		Assert.assertEquals(0, hist.getMax());
+	}
+
+	private static void assertNear(final long expected, final long actual) {
+		Assert.assertTrue(expected + " ~ " + actual, Math.abs(actual - expected) <= expected / 32);
+	}
+}
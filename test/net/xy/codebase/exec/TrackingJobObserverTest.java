@@ -0,0 +1,76 @@
+package net.xy.codebase.exec;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TrackingJobObserverTest {
+
+	@Test
+	public void testQueueWait() {
+		final InterThreads<Target> it = new InterThreads<Target>(Target.class, 16);
+		final TrackingJobObserver<Target> obs = new TrackingJobObserver<Target>();
+		it.setObserver(obs);
+		final Runnable job = () -> {
+		};
+		it.run(Target.A, job);
+		ThreadUtils.sleep(20);
+		it.doAll(Target.A, 0, null);
+		final LatencyHistogram wait = obs.getTargetStats().get(Target.A).waitHist;
+		Assert.assertEquals(1, wait.getCount());
+		Assert.assertTrue(wait.getMax() >= 20000000);
+		Assert.assertEquals(1, obs.getStats().get(Target.A).get(job.getClass()).execHist.getCount());
+	}
+
+	@Test
+	public void testConcurrentCounts() throws InterruptedException {
+		final TrackingJobObserver<Target> obs = new TrackingJobObserver<Target>();
+		final Runnable job = () -> {
+		};
+		final int threads = 8, amount = 100000;
+		final CountDownLatch done = new CountDownLatch(threads);
+		for (int t = 0; t < threads; t++) {
+			final Target target = Target.values()[t % 2];
+			new Thread(() -> {
+				for (int i = 0; i < amount; i++)
+					obs.jobEnd(target, job, null, 1);
+				done.countDown();
+			}).start();
+		}
+		done.await();
+		final TrackingJobObserver.Snapshot snap = obs.snapshot().get(Target.A).get(job.getClass());
+		Assert.assertEquals(threads / 2 * amount, snap.getExecAmount());
+		Assert.assertEquals(threads / 2 * amount, snap.getExecTime());
+		Assert.assertEquals(threads * amount, obs.getTargetStats().get(Target.A).getExecAmount()
+				+ obs.getTargetStats().get(Target.B).getExecAmount());
+		// next interval starts empty
+		obs.jobEnd(Target.A, job, null, 1);
+		Assert.assertEquals(1, obs.snapshot().get(Target.A).get(job.getClass()).getExecAmount());
+	}
+
+	@Test
+	public void testSnapshotHistograms() {
+		final TrackingJobObserver<Target> obs = new TrackingJobObserver<Target>();
+		final Runnable job = () -> {
+		};
+		for (int i = 1; i <= 100; i++)
+			obs.jobEnd(Target.A, job, null, i * 1000);
+		TrackingJobObserver.Snapshot snap = obs.snapshotTargets().get(Target.A);
+		Assert.assertEquals(100, snap.getExecAmount());
+		Assert.assertEquals(100, snap.getExecHist().getCount());
+		Assert.assertEquals(100000, snap.getExecHist().getMax());
+		Assert.assertEquals(0, obs.getTargetStats().get(Target.A).execHist.getCount());
+		obs.jobEnd(Target.A, job, null, 5);
+		snap = obs.snapshot().get(Target.A).get(job.getClass());
+		// class tracker kept its values until its own snapshot
+		Assert.assertEquals(101, snap.getExecHist().getCount());
+		snap = obs.snapshotTargets().get(Target.A);
+		Assert.assertEquals(1, snap.getExecHist().getCount());
+		Assert.assertEquals(5, snap.getExecHist().getMax());
+	}
+
+	private static enum Target {
+		A, B
+	}
+}
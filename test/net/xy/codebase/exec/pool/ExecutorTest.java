@@ -0,0 +1,93 @@
+package net.xy.codebase.exec.pool;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.xy.codebase.concurrent.TaskMonitor;
+import net.xy.codebase.exec.ThreadUtils;
+import net.xy.codebase.exec.tq.TimeoutQueue;
+
+public class ExecutorTest {
+
+	@Test
+	public void testWorkStealing() throws InterruptedException {
+		final TimeoutQueue tq = new TimeoutQueue("Test");
+		final Executor exec = new Executor("Stealing", tq);
+		final WorkStealingTaskSource ws = exec.setWorkStealing(1024);
+		final int depth = 14;
+		final CountDownLatch done = new CountDownLatch(1 << depth);
+		// binary fan out from inside the workers, leafs count down
+		ws.run(new Fork(ws, depth, done));
+		Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+		exec.prepareSutdown();
+		exec.shutdown();
+		tq.shutdown();
+	}
+
+	@Test
+	public void testVirtualBounded() throws InterruptedException {
+		final VirtualExecutor exec = new VirtualExecutor("Virtual", new TaskMonitor(4));
+		final int amount = 200;
+		final CountDownLatch done = new CountDownLatch(amount);
+		final AtomicInteger running = new AtomicInteger(), peak = new AtomicInteger();
+		for (int i = 0; i < amount; i++)
+			Assert.assertTrue(exec.run(() -> {
+				peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+				ThreadUtils.sleep(2);
+				running.decrementAndGet();
+				done.countDown();
+			}));
+		Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+		Assert.assertTrue(peak.get() <= 4);
+		exec.shutdown();
+	}
+
+	@Test
+	public void testAdaptiveScaling() {
+		final AdaptiveScalingPolicy policy = new AdaptiveScalingPolicy();
+		final long tick = TimeUnit.MILLISECONDS.toNanos(40);
+		// burst ramps from 2 to 32 by doubling while throughput follows
+		int threads = 2;
+		long completed = 100;
+		for (int i = 0; i < 4; i++) {
+			final int delta = policy.scale(new IScalingPolicy.Stats(threads, threads, 2, 32, 10000, -1, completed, tick));
+			Assert.assertEquals(threads, delta);
+			threads += delta;
+			completed *= 2;
+		}
+		Assert.assertEquals(32, threads);
+		// stays until a whole idle window passed
+		int ticks = 0;
+		int delta;
+		while ((delta = policy.scale(new IScalingPolicy.Stats(threads, 0, 2, 32, 0, 0, 0, tick))) == 0)
+			ticks++;
+		Assert.assertEquals(24, ticks);
+		Assert.assertTrue(delta < 0);
+	}
+
+	private static class Fork implements Runnable {
+		private final WorkStealingTaskSource ws;
+		private final int depth;
+		private final CountDownLatch done;
+
+		public Fork(final WorkStealingTaskSource ws, final int depth, final CountDownLatch done) {
+			this.ws = ws;
+			this.depth = depth;
+			this.done = done;
+		}
+
+		@Override
+		public void run() {
+			if (depth == 0) {
+				done.countDown();
+				return;
+			}
+			Assert.assertTrue(ws.run(new Fork(ws, depth - 1, done)));
+			Assert.assertTrue(ws.run(new Fork(ws, depth - 1, done)));
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package net.xy.codebase.exec.tq;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.xy.codebase.exec.InterThreads;
+import net.xy.codebase.exec.InterThreadsTaskDispatcher;
+import net.xy.codebase.exec.ThreadUtils;
+import net.xy.codebase.exec.pool.Executor;
+import net.xy.codebase.exec.pool.ExecutorTaskDispatcher;
+import net.xy.codebase.exec.tasks.ScheduledTask;
+
+public class TimeoutQueueTest {
+
+	@Test
+	public void testHeap() throws InterruptedException {
+		testExpiry(new HeapTimeoutStore(), 0);
+	}
+
+	@Test
+	public void testTimingWheel() throws InterruptedException {
+		// small ticks to run through all levels and cascades
+		testExpiry(new TimingWheelTimeoutStore(TimeUnit.MICROSECONDS.toNanos(10)), 0);
+	}
+
+	@Test
+	public void testTimingWheelDefault() throws InterruptedException {
+		testExpiry(new TimingWheelTimeoutStore(), 0);
+	}
+
+	@Test
+	public void testCancelReschedule() throws InterruptedException {
+		for (final ITimeoutStore store : new ITimeoutStore[] { new HeapTimeoutStore(),
+				new TimingWheelTimeoutStore() }) {
+			final TimeoutQueue tq = new TimeoutQueue("Test", store);
+			final AtomicInteger runs = new AtomicInteger();
+			final ScheduledTask[] tasks = new ScheduledTask[1000];
+			for (int i = 0; i < tasks.length; i++)
+				tq.add(tasks[i] = new ScheduledTask(0, 60000) {
+					@Override
+					protected void innerRun() {
+						runs.incrementAndGet();
+					}
+				});
+			final int base = tq.size();
+			for (int i = 0; i < tasks.length; i += 2)
+				tasks[i].stop();
+			Assert.assertEquals(base - tasks.length / 2, tq.size());
+			for (int i = 1; i < tasks.length; i += 2)
+				tasks[i].setNextOffset(10);
+			for (int i = 0; i < 100 && runs.get() < tasks.length / 2; i++)
+				Thread.sleep(10);
+			Assert.assertEquals(tasks.length / 2, runs.get());
+			Assert.assertEquals(base - tasks.length, tq.size());
+			tq.shutdown();
+		}
+	}
+
+	@Test
+	public void testDispatch() throws InterruptedException {
+		final TimeoutQueue tq = new TimeoutQueue("Test");
+		final Executor exec = new Executor("Dispatch", tq);
+		tq.setDispatcher(new ExecutorTaskDispatcher(exec, 64));
+		// first thread gets started by the executors thread manager
+		for (int i = 0; i < 100 && exec.getThreadCount() == 0; i++)
+			Thread.sleep(10);
+		final CountDownLatch slow = new CountDownLatch(1);
+		final AtomicLong fired = new AtomicLong();
+		tq.add(new ScheduledTask(0, 0) {
+			@Override
+			protected void innerRun() {
+				ThreadUtils.sleep(1000);
+				slow.countDown();
+			}
+		});
+		final long start = System.nanoTime();
+		tq.add(new ScheduledTask(0, 50) {
+			@Override
+			protected void innerRun() {
+				fired.set(System.nanoTime());
+			}
+		});
+		for (int i = 0; i < 100 && fired.get() == 0; i++)
+			Thread.sleep(10);
+		Assert.assertTrue(fired.get() != 0);
+		Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(fired.get() - start) < 500);
+		Assert.assertTrue(slow.await(5, TimeUnit.SECONDS));
+		exec.prepareSutdown();
+		exec.shutdown();
+		tq.shutdown();
+	}
+
+	@Test
+	public void testDispatchInterThreads() throws InterruptedException {
+		final TimeoutQueue tq = new TimeoutQueue("Test");
+		final InterThreads<Target> it = new InterThreads<Target>(Target.class, 16);
+		tq.setDispatcher(new InterThreadsTaskDispatcher<Target>(it, Target.A));
+		final AtomicInteger plain = new AtomicInteger(), affine = new AtomicInteger();
+		tq.add(new ScheduledTask(0, 0) {
+			@Override
+			protected void innerRun() {
+				plain.incrementAndGet();
+			}
+		});
+		tq.add(new AffineTask(affine));
+		ThreadUtils.sleep(100);
+		// nothing runs on the timer thread
+		Assert.assertEquals(0, plain.get() + affine.get());
+		it.doAll(Target.B, 0, null);
+		Assert.assertEquals(0, plain.get());
+		Assert.assertEquals(1, affine.get());
+		it.doAll(Target.A, 0, null);
+		Assert.assertEquals(1, plain.get());
+		it.shutdown();
+		tq.shutdown();
+	}
+
+	@Test
+	public void testSlack() throws InterruptedException {
+		testExpiry(new HeapTimeoutStore(), 20);
+		testExpiry(new TimingWheelTimeoutStore(), 20);
+	}
+
+	private void testExpiry(final ITimeoutStore store, final long slack) throws InterruptedException {
+		final TimeoutQueue tq = new TimeoutQueue("Test", store);
+		final int amount = 2000;
+		final CountDownLatch cl = new CountDownLatch(amount);
+		final AtomicInteger early = new AtomicInteger();
+		final Random rnd = new Random();
+		for (int i = 0; i < amount; i++) {
+			final long delay = rnd.nextInt(500);
+			final long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+			final ScheduledTask task = new ScheduledTask(0, delay) {
+				@Override
+				protected void innerRun() {
+					if (System.nanoTime() < due)
+						early.incrementAndGet();
+					cl.countDown();
+				}
+			};
+			task.setSlack(slack);
+			tq.add(task);
+		}
+		Assert.assertTrue(cl.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals(0, early.get());
+		tq.shutdown();
+	}
+
+	private static class AffineTask extends ScheduledTask implements IDispatchAffinity<Target> {
+		private final AtomicInteger runs;
+
+		public AffineTask(final AtomicInteger runs) {
+			super(0, 0);
+			this.runs = runs;
+		}
+
+		@Override
+		protected void innerRun() {
+			runs.incrementAndGet();
+		}
+
+		@Override
+		public Target getDispatchTarget() {
+			return Target.B;
+		}
+	}
+
+	private static enum Target {
+		A, B
+	}
+}